@@ -0,0 +1,142 @@
+package sample.spring.book.benchmark;
+
+import static sample.spring.book.domain.BookClientTest.*;
+
+import java.util.List;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.support.RestClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.BookClientApi;
+import sample.spring.book.infrastructure.BookClientHttpInterfaceAdapter;
+import sample.spring.book.infrastructure.BookClientRestClientAdapter;
+import sample.spring.book.infrastructure.BookClientRestTemplateAdapter;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.CustomUriBuilderFactory;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
+import sample.spring.book.infrastructure.component.JdkHttp2ClientFactory;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+import sample.spring.book.infrastructure.component.TempFileHttpMessageConverter;
+import sample.spring.book.infrastructure.component.converter.LocalDateToStringConverter;
+import sample.spring.book.infrastructure.component.converter.StringToLocalDateConverter;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// ベンチマーク共通の準備処理。スタブサーバーの起動と、テストと同じ構成のBookClientの生成を行う
+public final class BenchmarkSupport {
+
+    public enum AdapterType {
+        RestTemplate, //
+        RestClient, //
+        HTTPInterface; //
+    }
+
+    public enum TransportType {
+        Simple, //
+        HttpComponents, //
+        JdkHttpClient, //
+        JdkHttp2; //
+
+        public ClientHttpRequestFactory create() {
+            return switch (this) {
+                case Simple -> new SimpleClientHttpRequestFactory();
+                case HttpComponents -> {
+                    // デフォルト(1ルート5本)ではスレッド数を増やした計測でプール待ちになるため広げておく
+                    HttpClientPoolProperties properties = new HttpClientPoolProperties();
+                    properties.setMaxTotal(200);
+                    properties.setMaxPerRoute(200);
+                    yield new PooledHttpComponentsFactory(properties).create();
+                }
+                case JdkHttpClient -> new JdkClientHttpRequestFactory();
+                case JdkHttp2 -> new JdkHttp2ClientFactory().create();
+            };
+        }
+    }
+
+    private BenchmarkSupport() {
+    }
+
+    public static ConfigurableApplicationContext startStubServer() {
+        return new SpringApplicationBuilder(BookClientTest.TestConfig.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "book.access-log.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.[Spring Security Debugger]=OFF")
+                .run();
+    }
+
+    // スタブのTomcatが現在保持している接続数(HTTP/2の場合は多重化された1本も1と数える)
+    public static long connectionCount(ConfigurableApplicationContext stub) {
+        TomcatWebServer webServer = (TomcatWebServer) ((WebServerApplicationContext) stub).getWebServer();
+        return ((AbstractProtocol<?>) webServer.getTomcat().getConnector().getProtocolHandler()).getConnectionCount();
+    }
+
+    public static BookClient createClient(AdapterType adapter, TransportType transport, Environment env) {
+
+        ClientHttpRequestFactory requestFactory = transport.create();
+        HttpMessageConverter<Object> converter = new CustomMessageConveterFactory().create(LOCAL_DATE_PATTERN);
+
+        return switch (adapter) {
+            case RestTemplate -> {
+                RestTemplate restTemplate = new RestTemplate(requestFactory);
+                restTemplate.setUriTemplateHandler(
+                        new DefaultUriBuilderFactory("http://localhost:" + env.getProperty("local.server.port")));
+                restTemplate.setClientHttpRequestInitializers(List.of(new PropagateUserContextInitializer()));
+                restTemplate.getMessageConverters().addFirst(converter);
+                yield new BookClientRestTemplateAdapter(restTemplate);
+            }
+            case RestClient -> new BookClientRestClientAdapter(restClient(requestFactory, converter, env));
+            case HTTPInterface -> {
+                DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+                conversionService.addConverter(new LocalDateToStringConverter(LOCAL_DATE_PATTERN));
+                conversionService.addConverter(new StringToLocalDateConverter(LOCAL_DATE_PATTERN));
+
+                HttpServiceProxyFactory factory = HttpServiceProxyFactory
+                        .builderFor(RestClientAdapter.create(restClient(requestFactory, converter, env)))
+                        .conversionService(conversionService)
+                        .build();
+                yield new BookClientHttpInterfaceAdapter(factory.createClient(BookClientApi.class));
+            }
+        };
+    }
+
+    // 更新系はスタブ側で認証が必要なため、計測スレッドごとに認証情報を設定する
+    public static void login() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+    }
+
+    private static RestClient restClient(ClientHttpRequestFactory requestFactory, HttpMessageConverter<Object> converter,
+            Environment env) {
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .uriBuilderFactory(new CustomUriBuilderFactory(env, "http://localhost:${local.server.port}",
+                        LOCAL_DATE_PATTERN, true))
+                .messageConverters(converters -> {
+                    converters.addFirst(converter);
+                    converters.add(new TempFileHttpMessageConverter());
+                })
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInitializer(new PropagateUserContextInitializer())
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package sample.spring.book.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import sample.spring.book.benchmark.BenchmarkSupport.AdapterType;
+import sample.spring.book.benchmark.BenchmarkSupport.TransportType;
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+
+// RestTemplate/RestClient/HTTPインターフェースの各アダプターを通信ライブラリ毎に比較する。
+// gc.alloc.rate.normは -prof gc を付けて実行すると出力される(pom.xmlのjmh.argsのデフォルト)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookClientBenchmark {
+
+    @Param
+    private AdapterType adapter;
+
+    @Param
+    private TransportType transport;
+
+    private ConfigurableApplicationContext stub;
+    private BookClient client;
+
+    @State(Scope.Thread)
+    public static class UserContext {
+        @Setup(Level.Trial)
+        public void login() {
+            BenchmarkSupport.login();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stub = BenchmarkSupport.startStubServer();
+        client = BenchmarkSupport.createClient(adapter, transport, stub.getEnvironment());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public Optional<Book> get() {
+        return client.get(1);
+    }
+
+    @Benchmark
+    public List<Book> getAll() {
+        return client.getAll();
+    }
+
+    @Benchmark
+    public List<Book> findByCondition() {
+        return client.findByCondition(Map.of("author", "司馬遼太郎"));
+    }
+
+    @Benchmark
+    public Book add(UserContext user) {
+        // スタブのリポジトリはリクエスト毎に作り直されるため同じ内容を繰り返し登録できる
+        return client.add("新宿鮫", "大沢在昌", LocalDate.of(1990, 1, 1));
+    }
+}
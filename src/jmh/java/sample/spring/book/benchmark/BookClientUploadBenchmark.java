@@ -0,0 +1,57 @@
+package sample.spring.book.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import sample.spring.book.benchmark.BenchmarkSupport.AdapterType;
+import sample.spring.book.benchmark.BenchmarkSupport.TransportType;
+import sample.spring.book.domain.BookClient;
+
+// uploadはRestTemplate版が未対応(UnsupportedOperationException)のためBookClientBenchmarkから分けている
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookClientUploadBenchmark {
+
+    @Param({ "RestClient", "HTTPInterface" })
+    private AdapterType adapter;
+
+    @Param
+    private TransportType transport;
+
+    private ConfigurableApplicationContext stub;
+    private BookClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stub = BenchmarkSupport.startStubServer();
+        client = BenchmarkSupport.createClient(adapter, transport, stub.getEnvironment());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Benchmark
+    public String upload(BookClientBenchmark.UserContext user) {
+        return client.upload("mz-tech-logo-small.png");
+    }
+}
@@ -0,0 +1,64 @@
+package sample.spring.book.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.BookResponse;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// 1000件のBookの配列をBookResponse経由(従来の実装)で読む場合とMix-inでBookへ直接読む場合で比べる。
+// 割り当て量は -prof gc で確認する
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookDeserializationBenchmark {
+
+    private ObjectMapper mapper;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new CustomMessageConveterFactory().createObjectMapper(BookClientTest.LOCAL_DATE_PATTERN);
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(new Book(i, "title" + i, "author" + i, LocalDate.of(2024, 10, 1).plusDays(i)));
+        }
+        json = mapper.writeValueAsBytes(books);
+    }
+
+    // BookResponse.toModel()はパッケージプライベートのため同じ変換をここで行う
+    @Benchmark
+    public List<Book> viaBookResponse() throws IOException {
+        return mapper.readValue(json, new TypeReference<List<BookResponse>>() {}).stream()
+                .map(res -> new Book(res.id(), res.title(), res.author(), res.published()))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Book> direct() throws IOException {
+        return mapper.readValue(json, new TypeReference<List<Book>>() {});
+    }
+}
@@ -0,0 +1,144 @@
+package sample.spring.book.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sample.spring.book.benchmark.BenchmarkSupport.AdapterType;
+import sample.spring.book.benchmark.BenchmarkSupport.TransportType;
+import sample.spring.book.domain.BookClient;
+
+// 仮想スレッドから1000件を同時に呼び出したときのHTTP/1.1プール(HttpComponents)とHTTP/2(h2c)の比較。
+// スループットは1呼び出しあたり(OperationsPerInvocation)で、接続数と1呼び出し毎のレイテンシの
+// パーセンタイルは副次カウンター(Stats)として結果に出す。
+// HttpComponentsのプールは1ルート200本のため、それを超える同時呼び出しはリース待ちになる
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ConcurrentTransportBenchmark.CONCURRENCY)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentTransportBenchmark {
+
+    static final int CONCURRENCY = 1000;
+
+    @Param({ "HttpComponents", "JdkHttp2" })
+    private TransportType transport;
+
+    private ConfigurableApplicationContext stub;
+    private BookClient client;
+    private ExecutorService executor;
+
+    private SimpleMeterRegistry registry;
+    private Timer latency;
+    private long peakConnections;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stub = BenchmarkSupport.startStubServer();
+        client = BenchmarkSupport.createClient(AdapterType.RestClient, transport, stub.getEnvironment());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        // 最初の呼び出しでh2cへのUpgradeを済ませておく(同時に始めると全件がHTTP/1.1で接続してしまう)
+        client.get(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+        stub.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStats() {
+        registry = new SimpleMeterRegistry();
+        latency = Timer.builder("book.client.call")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+        peakConnections = 0;
+    }
+
+    @Benchmark
+    public void getConcurrently(Stats stats) throws Exception {
+
+        List<Future<?>> futures = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            futures.add(executor.submit(() -> latency.record(() -> client.get(1))));
+        }
+
+        // 全件が通信中になったところで接続数を見る
+        peakConnections = Math.max(peakConnections, BenchmarkSupport.connectionCount(stub));
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private double percentileMillis(double percentile) {
+        for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    // publicなメソッドの戻り値がJMHの結果に副次カウンターとして並ぶ(イテレーションの終わりに読まれ、時間では割らない)。
+    // 値はイテレーション毎にresetStatsで作り直す計測値から読む
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Stats {
+
+        private ConcurrentTransportBenchmark benchmark;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentTransportBenchmark benchmark) {
+            this.benchmark = benchmark;
+        }
+
+        public long connections() {
+            return benchmark.peakConnections;
+        }
+
+        public double p50Millis() {
+            return benchmark.percentileMillis(0.5);
+        }
+
+        public double p99Millis() {
+            return benchmark.percentileMillis(0.99);
+        }
+
+        public double p999Millis() {
+            return benchmark.percentileMillis(0.999);
+        }
+
+        public double maxMillis() {
+            return benchmark.latency.max(TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package sample.spring.book.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.AddRequest;
+import sample.spring.book.infrastructure.BookResponse;
+import sample.spring.book.infrastructure.component.jackson.ConfigurableLocalDateDeserializer;
+import sample.spring.book.infrastructure.component.jackson.ConfigurableLocalDateSerializer;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// DTOの読み書きをdatabind(BeanSerializer/BeanDeserializer)とDtoCodecModuleで比べる。
+// jsonRead/jsonWriteは1000件のBookResponseの配列、addRequestは1件のAddRequestを書く。割り当て量は -prof gc で確認する
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoCodecBenchmark {
+
+    private static final String PATTERN = BookClientTest.LOCAL_DATE_PATTERN;
+
+    public enum Binding {
+        Databind, Codec
+    }
+
+    @Param
+    private Binding binding;
+
+    private ObjectMapper mapper;
+    private List<BookResponse> books;
+    private AddRequest addRequest;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = binding == Binding.Codec
+                ? new CustomMessageConveterFactory().createObjectMapper(PATTERN)
+                : new ObjectMapper().registerModule(new SimpleModule()
+                        .addSerializer(LocalDate.class, new ConfigurableLocalDateSerializer(PATTERN))
+                        .addDeserializer(LocalDate.class, new ConfigurableLocalDateDeserializer(PATTERN)));
+
+        books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(new BookResponse(i, "title" + i, "author" + i, LocalDate.of(2024, 10, 1).plusDays(i)));
+        }
+        addRequest = new AddRequest("title", "author", LocalDate.of(2024, 10, 1));
+        json = mapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public List<BookResponse> jsonRead() throws IOException {
+        return mapper.readValue(json, new TypeReference<List<BookResponse>>() {});
+    }
+
+    @Benchmark
+    public byte[] jsonWrite() throws IOException {
+        return mapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] addRequest() throws IOException {
+        return mapper.writeValueAsBytes(addRequest);
+    }
+}
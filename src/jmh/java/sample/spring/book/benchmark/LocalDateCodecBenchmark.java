@@ -0,0 +1,118 @@
+package sample.spring.book.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.BookResponse;
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// yyyy.MM.ddのLocalDateの変換をDateTimeFormatter(従来の実装)とLocalDateCodecの固定幅の実装で比べる。
+// jsonRead/jsonWriteはLocalDateを含む1000件のBookResponseの配列を読み書きする。割り当て量は -prof gc で確認する
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalDateCodecBenchmark {
+
+    private static final String PATTERN = BookClientTest.LOCAL_DATE_PATTERN;
+
+    public enum Codec {
+        Formatter, FixedWidth
+    }
+
+    @Param
+    private Codec codec;
+
+    private final LocalDate localDate = LocalDate.of(2024, 10, 1);
+    private final String text = "2024.10.01";
+
+    private DateTimeFormatter formatter;
+    private LocalDateCodec localDateCodec;
+    private ObjectMapper mapper;
+    private List<BookResponse> books;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        formatter = DateTimeFormatter.ofPattern(PATTERN);
+        localDateCodec = LocalDateCodec.of(PATTERN);
+        mapper = codec == Codec.FixedWidth
+                ? new CustomMessageConveterFactory().createObjectMapper(PATTERN)
+                : formatterObjectMapper();
+
+        books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(new BookResponse(i, "title" + i, "author" + i, localDate.plusDays(i)));
+        }
+        json = mapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public LocalDate parse() {
+        return codec == Codec.FixedWidth ? localDateCodec.parse(text) : LocalDate.parse(text, formatter);
+    }
+
+    @Benchmark
+    public String format() {
+        return codec == Codec.FixedWidth ? localDateCodec.format(localDate) : localDate.format(formatter);
+    }
+
+    @Benchmark
+    public List<BookResponse> jsonRead() throws IOException {
+        return mapper.readValue(json, new TypeReference<List<BookResponse>>() {});
+    }
+
+    @Benchmark
+    public byte[] jsonWrite() throws IOException {
+        return mapper.writeValueAsBytes(books);
+    }
+
+    // LocalDateCodecを使う前のConfigurableLocalDateSerializer/Deserializerと同じ実装
+    private ObjectMapper formatterObjectMapper() {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(LocalDate.class, new JsonSerializer<LocalDate>() {
+            @Override
+            public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider serializers)
+                    throws IOException {
+                gen.writeString(value.format(formatter));
+            }
+        });
+        module.addDeserializer(LocalDate.class, new JsonDeserializer<LocalDate>() {
+            @Override
+            public LocalDate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return LocalDate.parse(p.getValueAsString(), formatter);
+            }
+        });
+        return new ObjectMapper().registerModule(module);
+    }
+}
@@ -0,0 +1,73 @@
+package sample.spring.book.benchmark;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.util.UriBuilderFactory;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.CustomUriBuilderFactory;
+
+// CustomUriBuilderFactoryのURI展開だけを測る(通信は行わない)。
+// Resolvingは毎回プレースホルダーを解決してテンプレートを解析する従来の動作、Cachedは解析済みのテンプレートを使い回す。
+// 割り当て量は -prof gc で確認する
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriExpansionBenchmark {
+
+    public enum Mode {
+        Resolving, Cached
+    }
+
+    @Param
+    private Mode mode;
+
+    private final LocalDate localDate = LocalDate.of(2024, 10, 1);
+
+    private UriBuilderFactory factory;
+
+    @Setup
+    public void setUp() {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of("local.server.port", 8080)));
+        factory = new CustomUriBuilderFactory(env, "http://localhost:${local.server.port}",
+                BookClientTest.LOCAL_DATE_PATTERN, mode == Mode.Cached);
+    }
+
+    @Benchmark
+    public URI pathVariable() {
+        return factory.expand("/books/{id}", 1);
+    }
+
+    @Benchmark
+    public URI pathLocalDate() {
+        return factory.uriString("/books/localdate/{localdate}").build(localDate);
+    }
+
+    @Benchmark
+    public URI queryParams() {
+        return factory.uriString("/books/search")
+                .queryParam("author", "司馬遼太郎")
+                .queryParam("published", localDate)
+                .build();
+    }
+}
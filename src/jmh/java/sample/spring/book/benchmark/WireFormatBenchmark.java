@@ -0,0 +1,90 @@
+package sample.spring.book.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// getAllのレスポンス(1000件のBook)をJSONとCBORで読み書きして比べる。
+// ペイロードのサイズは副次カウンター(payloadBytes)として結果に出す。割り当て量は -prof gc で確認する
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    public enum Format {
+        Json, Cbor
+    }
+
+    @Param
+    private Format format;
+
+    private ObjectMapper mapper;
+    private List<Book> books;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        CustomMessageConveterFactory factory = new CustomMessageConveterFactory();
+        mapper = format == Format.Cbor
+                ? factory.createCbor(BookClientTest.LOCAL_DATE_PATTERN).getObjectMapper()
+                : factory.createObjectMapper(BookClientTest.LOCAL_DATE_PATTERN);
+
+        books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(new Book(i, "title" + i, "author" + i, LocalDate.of(2024, 10, 1).plusDays(i)));
+        }
+        payload = mapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public List<Book> decode(PayloadSize size) throws IOException {
+        return mapper.readValue(payload, new TypeReference<List<Book>>() {});
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize size) throws IOException {
+        return mapper.writeValueAsBytes(books);
+    }
+
+    // publicなメソッドの戻り値がJMHの結果に副次カウンターとして並ぶ(イテレーション毎の値で時間では割らない)
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        private int bytes;
+
+        @Setup
+        public void setUp(WireFormatBenchmark benchmark) {
+            bytes = benchmark.payload.length;
+        }
+
+        public int payloadBytes() {
+            return bytes;
+        }
+    }
+}
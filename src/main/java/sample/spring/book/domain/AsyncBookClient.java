@@ -0,0 +1,46 @@
+package sample.spring.book.domain;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.core.io.Resource;
+
+// BookClientのノンブロッキング版。例外(DuplicateException等)はCompletableFutureの異常終了として通知される。
+// 戻り値のfutureに直接付けたハンドラーには例外がそのまま渡るが、後続のステージではCompletionExceptionで包まれる
+public interface AsyncBookClient {
+
+    CompletableFuture<Optional<Book>> get(int id);
+
+    CompletableFuture<List<Optional<Book>>> getMany(Collection<Integer> ids);
+
+    CompletableFuture<List<Book>> getAll();
+
+    CompletableFuture<List<Book>> findByCondition(Map<String, String> queryParams);
+
+    CompletableFuture<List<Book>> findByAuthorStartingWith(String prefix);
+
+    CompletableFuture<Book> add(String title, String author, LocalDate published);
+
+    CompletableFuture<Book> update(Book book);
+
+    CompletableFuture<Void> delete(int id);
+
+    CompletableFuture<String> upload(String resourceName);
+
+    CompletableFuture<String> upload(Path file);
+
+    CompletableFuture<String> uploadInChunks(Path file);
+
+    CompletableFuture<Resource> download(String filename);
+
+    CompletableFuture<Long> downloadTo(String filename, Path target);
+
+    CompletableFuture<String> pathParamLocalDate(LocalDate localDate);
+
+    CompletableFuture<String> queryParamLocalDate(LocalDate localDate);
+}
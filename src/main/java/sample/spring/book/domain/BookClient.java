@@ -1,9 +1,13 @@
 package sample.spring.book.domain;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import jakarta.validation.Valid;
 
@@ -15,12 +19,27 @@ public interface BookClient {
 
     Optional<Book> get(int id);
 
+    // idsの順に結果を返す(存在しないidはempty)。同じidを重複して指定した場合も要素毎に別のインスタンスを返す
+    List<Optional<Book>> getMany(Collection<Integer> ids);
+
     List<Book> getAll();
 
     List<Book> findByCondition(Map<String, String> queryParams);
 
+    // 戻り値のStreamは通信路を保持しているため、try-with-resourcesで必ずcloseすること
+    Stream<Book> streamAll();
+
+    Stream<Book> streamByCondition(Map<String, String> queryParams);
+
     List<Book> findByAuthorStartingWith(String prefix);
 
+    // pageSize件ずつのページを辿りながら1件ずつ返す。次のページは現在のページを読んでいる間に先読みする
+    Iterator<Book> iterateAll(int pageSize);
+
+    Iterator<Book> iterateByCondition(Map<String, String> queryParams, int pageSize);
+
+    Iterator<Book> iterateByAuthorStartingWith(String prefix, int pageSize);
+
     Book add(String title, String author, LocalDate published);
 
     Book update(Book book);
@@ -29,8 +48,17 @@ public interface BookClient {
 
     String upload(String resourceName);
 
+    // ファイルをヒープに読み込まずにチャンク単位で送信する(Transfer-Encoding: chunked)
+    String upload(Path file);
+
+    // チャンクに分けて並行に送り、失敗したチャンクだけを送り直す(/books/uploadsの分割アップロード)
+    String uploadInChunks(Path file);
+
     Resource download(String filename);
 
+    // ボディをヒープに載せずにtargetへ直接書き出す(targetは上書き)。戻り値は書き込んだバイト数
+    long downloadTo(String filename, Path target);
+
     String pathParamLocalDate(LocalDate localDate);
 
     String queryParamLocalDate(LocalDate localDate);
@@ -0,0 +1,127 @@
+package sample.spring.book.infrastructure;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.springframework.core.io.Resource;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+
+import lombok.RequiredArgsConstructor;
+import sample.spring.book.domain.AsyncBookClient;
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+
+// 既存のBookClient実装を仮想スレッド上で実行してCompletableFutureで返すアダプター
+@RequiredArgsConstructor
+public class AsyncBookClientAdapter implements AsyncBookClient {
+
+    private final BookClient client;
+    private final Executor executor;
+
+    public AsyncBookClientAdapter(BookClient client) {
+        // PropagateUserContextInitializerが参照する認証情報を呼び出し元から引き継ぐ
+        this(client, new DelegatingSecurityContextExecutor(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Book>> get(int id) {
+        return supply(() -> client.get(id));
+    }
+
+    @Override
+    public CompletableFuture<List<Optional<Book>>> getMany(Collection<Integer> ids) {
+        return supply(() -> client.getMany(ids));
+    }
+
+    @Override
+    public CompletableFuture<List<Book>> getAll() {
+        return supply(client::getAll);
+    }
+
+    @Override
+    public CompletableFuture<List<Book>> findByCondition(Map<String, String> queryParams) {
+        return supply(() -> client.findByCondition(queryParams));
+    }
+
+    @Override
+    public CompletableFuture<List<Book>> findByAuthorStartingWith(String prefix) {
+        return supply(() -> client.findByAuthorStartingWith(prefix));
+    }
+
+    @Override
+    public CompletableFuture<Book> add(String title, String author, LocalDate published) {
+        return supply(() -> client.add(title, author, published));
+    }
+
+    @Override
+    public CompletableFuture<Book> update(Book book) {
+        return supply(() -> client.update(book));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(int id) {
+        return supply(() -> {
+            client.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> upload(String resourceName) {
+        return supply(() -> client.upload(resourceName));
+    }
+
+    @Override
+    public CompletableFuture<String> upload(Path file) {
+        return supply(() -> client.upload(file));
+    }
+
+    @Override
+    public CompletableFuture<String> uploadInChunks(Path file) {
+        return supply(() -> client.uploadInChunks(file));
+    }
+
+    @Override
+    public CompletableFuture<Resource> download(String filename) {
+        return supply(() -> client.download(filename));
+    }
+
+    @Override
+    public CompletableFuture<Long> downloadTo(String filename, Path target) {
+        return supply(() -> client.downloadTo(filename, target));
+    }
+
+    @Override
+    public CompletableFuture<String> pathParamLocalDate(LocalDate localDate) {
+        return supply(() -> client.pathParamLocalDate(localDate));
+    }
+
+    @Override
+    public CompletableFuture<String> queryParamLocalDate(LocalDate localDate) {
+        return supply(() -> client.queryParamLocalDate(localDate));
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> call) {
+
+        // CompletableFuture#supplyAsyncは例外をCompletionExceptionで包んで完了させるため、自前で完了させる。
+        // これで戻り値のfutureに直接付けたhandle/exceptionally/whenCompleteにはNotFoundException等がそのまま渡る。
+        // ただしthenApply/thenCompose等で繋いだ後続のステージやjoin()では、通常どおりCompletionExceptionで包まれる
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
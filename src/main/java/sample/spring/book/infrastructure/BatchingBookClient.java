@@ -0,0 +1,172 @@
+package sample.spring.book.infrastructure;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.infrastructure.component.Caller;
+
+// 短い時間窓の間に呼ばれたget(id)を1回のgetMany(ids)にまとめるデコレーター(DataLoader方式)。
+// 同じidが既に問い合わせ中の場合はその結果を共有する(Bookは可変なので相乗りした呼び出し元には複製を返す)。
+// バッチと相乗りは呼び出し元の認証情報(PropagateUserContextInitializerが送るUser-IDとRoles)毎に分け、
+// バッチを開いた呼び出し元のSecurityContextでgetManyを呼ぶ。異なるユーザーの問い合わせが混ざることはない
+public class BatchingBookClient extends DelegatingBookClient {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(2);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Executor dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 仮想スレッドをpinさせないようsynchronizedではなくReentrantLockを使う
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, CompletableFuture<Optional<Book>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Caller, Batch> current = new HashMap<>();
+
+    public BatchingBookClient(BookClient delegate) {
+        this(delegate, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public BatchingBookClient(BookClient delegate, Duration window, int maxBatchSize) {
+        super(delegate);
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("window must not be negative =>" + window);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive =>" + maxBatchSize);
+        }
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Optional<Book> get(int id) {
+        return await(load(id));
+    }
+
+    @Override
+    public List<Optional<Book>> getMany(Collection<Integer> ids) {
+        List<CompletableFuture<Optional<Book>>> futures = ids.stream()
+                .map(this::load)
+                .toList();
+        return futures.stream()
+                .map(this::await)
+                .toList();
+    }
+
+    private CompletableFuture<Optional<Book>> load(int id) {
+
+        SecurityContext context = SecurityContextHolder.getContext();
+        Caller caller = Caller.of(context.getAuthentication());
+        Key key = new Key(caller, id);
+
+        Batch full = null;
+        CompletableFuture<Optional<Book>> future;
+
+        lock.lock();
+        try {
+            future = inFlight.get(key);
+            if (future != null) { // 問い合わせ中(または窓の中で待機中)の同じidは相乗りする
+                return future.thenApply(book -> book.map(Book::copy));
+            }
+
+            future = new CompletableFuture<>();
+            inFlight.put(key, future);
+
+            Batch batch = current.get(caller);
+            if (batch == null) {
+                Batch opened = new Batch(caller, new DelegatingSecurityContextExecutor(dispatcher, context));
+                batch = opened;
+                current.put(caller, opened);
+                CompletableFuture.runAsync(() -> flush(opened),
+                        CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS, opened.executor));
+            }
+            batch.futures.put(id, future);
+
+            if (batch.futures.size() >= maxBatchSize) { // 窓の終了を待たずに送る
+                full = batch;
+                current.remove(caller);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            Batch dispatching = full;
+            dispatching.executor.execute(() -> dispatch(dispatching));
+        }
+        return future;
+    }
+
+    private void flush(Batch batch) {
+        lock.lock();
+        try {
+            if (!current.remove(batch.caller, batch)) { // 件数上限に達して送信済み
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        List<Integer> ids = new ArrayList<>(batch.futures.keySet());
+        try {
+            List<Optional<Book>> results = delegate.getMany(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                batch.futures.get(ids.get(i)).complete(results.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            batch.futures.forEach((id, future) -> inFlight.remove(new Key(batch.caller, id), future));
+        }
+    }
+
+    private Optional<Book> await(CompletableFuture<Optional<Book>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // 呼び出し元には非同期化する前と同じ例外(NotFoundException等)を返す
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    private static class Batch {
+        private final Caller caller;
+        // バッチを開いた呼び出し元のSecurityContextでgetManyを呼ぶExecutor
+        private final Executor executor;
+        private final Map<Integer, CompletableFuture<Optional<Book>>> futures = new LinkedHashMap<>();
+
+        Batch(Caller caller, Executor executor) {
+            this.caller = caller;
+            this.executor = executor;
+        }
+    }
+
+    private record Key(Caller caller, int id) {
+    }
+}
@@ -1,10 +1,13 @@
 package sample.spring.book.infrastructure;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -17,20 +20,38 @@ import org.springframework.web.service.annotation.HttpExchange;
 import org.springframework.web.service.annotation.PostExchange;
 import org.springframework.web.service.annotation.PutExchange;
 
+import sample.spring.book.domain.Book;
+
 @HttpExchange("/books")
 public interface BookClientApi {
 
     @GetExchange("/{id}")
     BookResponse get(@PathVariable int id);
 
+    // 一覧はBookへ直接変換する(CustomMessageConveterFactoryのコンバーターを登録しておくこと)
+    @GetExchange
+    List<Book> getAll();
+
+    @GetExchange
+    List<Book> getByIds(@RequestParam("ids") Collection<Integer> ids);
+
+    @GetExchange("/search")
+    List<Book> findByCondition(@RequestParam Map<String, String> queryParams);
+
+    @GetExchange("/author")
+    List<Book> findByAuthorStartingWith(@RequestParam("prefix") String prefix);
+
+    // ページング版の一覧(afterがnullの場合は先頭のページ)
     @GetExchange
-    List<BookResponse> getAll();
+    BookPage getAllPage(@RequestParam("limit") int limit, @RequestParam(name = "after", required = false) String after);
 
     @GetExchange("/search")
-    List<BookResponse> findByCondition(@RequestParam Map<String, String> queryParams);
+    BookPage findByConditionPage(@RequestParam Map<String, String> queryParams, @RequestParam("limit") int limit,
+            @RequestParam(name = "after", required = false) String after);
 
     @GetExchange("/author")
-    List<BookResponse> findByAuthorStartingWith(@RequestParam("prefix") String prefix);
+    BookPage findByAuthorStartingWithPage(@RequestParam("prefix") String prefix, @RequestParam("limit") int limit,
+            @RequestParam(name = "after", required = false) String after);
 
     @PostExchange
     BookResponse add(@RequestBody AddRequest request);
@@ -45,9 +66,22 @@ public interface BookClientApi {
     String upload(@RequestHeader MultiValueMap<String, String> headers,
             @RequestPart MultiValueMap<String, Resource> parts);
 
+    @PostExchange("/uploads")
+    UploadSessionResponse initiateUpload(@RequestBody InitiateUploadRequest request);
+
+    @PutExchange(url = "/uploads/{uploadId}/chunks/{offset}", contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    void uploadChunk(@PathVariable String uploadId, @PathVariable long offset, @RequestBody byte[] chunk);
+
+    @PostExchange("/uploads/{uploadId}/complete")
+    String completeUpload(@PathVariable String uploadId);
+
     @GetExchange("/files/{filename:.+}")
     Resource download(@PathVariable String filename);
 
+    // RestClientにTempFileHttpMessageConverterを登録しておくこと(ボディは一時ファイルに書き出される)
+    @GetExchange("/files/{filename:.+}")
+    Path downloadToTempFile(@PathVariable String filename);
+
     @GetExchange("/localdate/{localdate}")
     String pathParamLocalDate(@PathVariable("localdate") LocalDate localdate);
 
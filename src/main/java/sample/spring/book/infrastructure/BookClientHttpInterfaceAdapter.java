@@ -1,11 +1,25 @@
 package sample.spring.book.infrastructure;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -13,15 +27,23 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import sample.spring.book.domain.Book;
 import sample.spring.book.domain.BookClient;
 import sample.spring.book.exception.DuplicateException;
 import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
 
 @RequiredArgsConstructor
+@Slf4j
 public class BookClientHttpInterfaceAdapter implements BookClient {
 
     private final BookClientApi client;
+    private final FanOutExecutor fanOut;
+
+    public BookClientHttpInterfaceAdapter(BookClientApi client) {
+        this(client, new FanOutExecutor());
+    }
 
     @Override
     public Optional<Book> get(int id) {
@@ -31,24 +53,64 @@ public class BookClientHttpInterfaceAdapter implements BookClient {
     }
 
     @Override
-    public List<Book> getAll() {
-        return client.getAll().stream()
-                .map(BookResponse::toModel)
+    public List<Optional<Book>> getMany(Collection<Integer> ids) {
+
+        // 重複を除いたidをまとめて問い合わせ、入力順に並べ直す(存在しないidはempty)
+        Map<Integer, Book> found = fanOut.mapInBatches(new LinkedHashSet<>(ids), this::getByIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity(), (book1, book2) -> book1));
+
+        // 重複したidの2件目以降には複製を返す(Bookは可変なので同じインスタンスを共有させない)
+        Set<Integer> returned = new HashSet<>();
+        return ids.stream()
+                .map(id -> Optional.ofNullable(found.get(id))
+                        .map(book -> returned.add(id) ? book : book.copy()))
                 .toList();
     }
 
+    private List<Book> getByIds(List<Integer> ids) {
+        return client.getByIds(ids);
+    }
+
+    @Override
+    public List<Book> getAll() {
+        return client.getAll();
+    }
+
     @Override
     public List<Book> findByCondition(Map<String, String> queryParams) {
-        return client.findByCondition(queryParams).stream()
-                .map(BookResponse::toModel)
-                .toList();
+        return client.findByCondition(queryParams);
+    }
+
+    // HTTPインターフェースのプロキシは戻り値への変換後にレスポンスをcloseしてしまうため
+    // 逐次読み出しはできない(RestClient/RestTemplate版を使うこと)
+    @Override
+    public Stream<Book> streamAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<Book> streamByCondition(Map<String, String> queryParams) {
+        throw new UnsupportedOperationException();
     }
 
     @Override
     public List<Book> findByAuthorStartingWith(String prefix) {
-        return client.findByAuthorStartingWith(prefix).stream()
-                .map(BookResponse::toModel)
-                .toList();
+        return client.findByAuthorStartingWith(prefix);
+    }
+
+    @Override
+    public Iterator<Book> iterateAll(int pageSize) {
+        return new BookPageIterator(after -> client.getAllPage(pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByCondition(Map<String, String> queryParams, int pageSize) {
+        return new BookPageIterator(after -> client.findByConditionPage(queryParams, pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByAuthorStartingWith(String prefix, int pageSize) {
+        return new BookPageIterator(after -> client.findByAuthorStartingWithPage(prefix, pageSize, after));
     }
 
     @Override
@@ -70,9 +132,23 @@ public class BookClientHttpInterfaceAdapter implements BookClient {
 
     @Override
     public String upload(String resourceName) {
+        return upload(new ClassPathResource(resourceName));
+    }
+
+    @Override
+    public String upload(Path file) {
+        return upload(new FileSystemResource(file));
+    }
+
+    @Override
+    public String uploadInChunks(Path file) {
+        return new ChunkedFileUploader(ChunkedFileUploader.Transport.of(client), fanOut).upload(file);
+    }
+
+    private String upload(Resource resource) {
 
         MultiValueMap<String, Resource> parts = new LinkedMultiValueMap<>();
-        parts.add("file", new ClassPathResource(resourceName));
+        parts.add("file", resource);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
@@ -85,6 +161,25 @@ public class BookClientHttpInterfaceAdapter implements BookClient {
         return client.download(fileName);
     }
 
+    @Override
+    public long downloadTo(String fileName, Path target) {
+
+        // プロキシはボディの変換後にレスポンスをcloseするため、変換の中で一時ファイルへ書き出したものを移動する
+        Path tempFile = client.downloadToTempFile(fileName);
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            return Files.size(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("failed to delete " + tempFile, e);
+            }
+        }
+    }
+
     @Override
     public String pathParamLocalDate(LocalDate localDate) {
         return client.pathParamLocalDate(localDate);
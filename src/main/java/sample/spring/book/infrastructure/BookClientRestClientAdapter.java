@@ -1,30 +1,86 @@
 package sample.spring.book.infrastructure;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.validation.Valid;
 
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 
-import lombok.RequiredArgsConstructor;
 import sample.spring.book.domain.Book;
 import sample.spring.book.domain.BookClient;
 import sample.spring.book.exception.DuplicateException;
 import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.FileTransfer;
+import sample.spring.book.infrastructure.component.jackson.JsonArrayStreamReader;
 
-@RequiredArgsConstructor
 public class BookClientRestClientAdapter implements BookClient {
 
     private final RestClient client;
+    private final FanOutExecutor fanOut;
+    private final JsonArrayStreamReader streamReader;
+    private final MediaType[] listAccept;
+
+    // exchange()ではdefaultStatusHandlerが効かないためretrieve()と同じ変換を自前で行う
+    private final ResponseErrorHandler errorHandler = new BookResponseErrorHandler();
+
+    public BookClientRestClientAdapter(RestClient client) {
+        this(client, new FanOutExecutor());
+    }
+
+    public BookClientRestClientAdapter(RestClient client, FanOutExecutor fanOut) {
+        this.client = client;
+        this.fanOut = fanOut;
+
+        // RestClientに設定済みのコンバーターからObjectMapperを引き継ぐ
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        client.mutate().messageConverters(converters::addAll);
+        this.streamReader = JsonArrayStreamReader.from(converters);
+        this.listAccept = listAccept(converters);
+    }
+
+    // RestClientはコンバーターからAcceptを組み立てないため、一覧の取得では明示的に指定する。
+    // CBORのコンバーターがJSONより前にあればCBORを優先し、CBORに対応していないサーバーからはJSONで受け取る。
+    // 送信するボディはCBORに対応していないサーバーで415にならないよう、Content-TypeをJSONに固定している
+    // (jackson-dataformat-cborがあるとデフォルトのコンバーターの末尾にもCBORが入るため、順序で判断する)
+    private static MediaType[] listAccept(List<HttpMessageConverter<?>> converters) {
+        boolean cbor = converters.stream()
+                .map(HttpMessageConverter::getSupportedMediaTypes)
+                .filter(types -> types.contains(MediaType.APPLICATION_CBOR)
+                        || types.contains(MediaType.APPLICATION_JSON))
+                .findFirst()
+                .map(types -> types.contains(MediaType.APPLICATION_CBOR))
+                .orElse(false);
+        return cbor
+                ? new MediaType[] { MediaType.APPLICATION_CBOR, MediaType.parseMediaType("application/json;q=0.9") }
+                : new MediaType[] { MediaType.APPLICATION_JSON };
+    }
 
     @Override
     public Optional<Book> get(int id) {
@@ -39,18 +95,40 @@ public class BookClientRestClientAdapter implements BookClient {
                 .map(BookResponse::toModel);
     }
 
+    @Override
+    public List<Optional<Book>> getMany(Collection<Integer> ids) {
+
+        // 重複を除いたidをまとめて問い合わせ、入力順に並べ直す(存在しないidはempty)
+        Map<Integer, Book> found = fanOut.mapInBatches(new LinkedHashSet<>(ids), this::getByIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity(), (book1, book2) -> book1));
+
+        // 重複したidの2件目以降には複製を返す(Bookは可変なので同じインスタンスを共有させない)
+        Set<Integer> returned = new HashSet<>();
+        return ids.stream()
+                .map(id -> Optional.ofNullable(found.get(id))
+                        .map(book -> returned.add(id) ? book : book.copy()))
+                .toList();
+    }
+
+    private List<Book> getByIds(List<Integer> ids) {
+
+        return client
+                .get()
+                .uri("/books", builder -> builder.queryParam("ids", ids).build())
+                .accept(listAccept)
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<Book>>(){});
+    }
+
     @Override
     public List<Book> getAll() {
 
-        List<BookResponse> bookResponses= client
+        return client
                 .get()
                 .uri("/books")
+                .accept(listAccept)
                 .retrieve()
-                .body(new ParameterizedTypeReference<List<BookResponse>>(){});
-
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
+                .body(new ParameterizedTypeReference<List<Book>>(){});
     }
 
     @Override
@@ -60,31 +138,103 @@ public class BookClientRestClientAdapter implements BookClient {
         MultiValueMap<String, String> multiValueMap = new LinkedMultiValueMap<>();
         queryParams.forEach((key, value) -> multiValueMap.add(key, value));
 
-        List<BookResponse> bookResponses= client
+        return client
                 .get()
                 .uri("/books/search", builder -> builder
                         .queryParams(multiValueMap)
                         .build())
+                .accept(listAccept)
                 .retrieve()
-                .body(new ParameterizedTypeReference<List<BookResponse>>(){});
+                .body(new ParameterizedTypeReference<List<Book>>(){});
+    }
 
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
+    @Override
+    public Stream<Book> streamAll() {
+        return client
+                .get()
+                .uri("/books")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange((request, response) -> readStream(response), false);
+    }
+
+    @Override
+    public Stream<Book> streamByCondition(Map<String, String> queryParams) {
+
+        MultiValueMap<String, String> multiValueMap = new LinkedMultiValueMap<>();
+        queryParams.forEach((key, value) -> multiValueMap.add(key, value));
+
+        return client
+                .get()
+                .uri("/books/search", builder -> builder
+                        .queryParams(multiValueMap)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange((request, response) -> readStream(response), false);
+    }
+
+    private Stream<Book> readStream(ClientHttpResponse response) throws IOException {
+        try {
+            handleError(response);
+        } catch (RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        return streamReader.read(response, Book.class);
+    }
+
+    private void handleError(ClientHttpResponse response) throws IOException {
+        if (errorHandler.hasError(response)) {
+            errorHandler.handleError(response);
+        }
+        if (response.getStatusCode().isError()) {
+            throw new RestClientResponseException("unexpected status", response.getStatusCode(),
+                    response.getStatusText(), response.getHeaders(), null, null);
+        }
     }
 
     @Override
     public List<Book> findByAuthorStartingWith(String prefix) {
 
-        List<BookResponse> bookResponses = client
+        return client
                 .get()
                 .uri("/books/author", builder -> builder.queryParam("prefix", prefix).build())
+                .accept(listAccept)
                 .retrieve()
                 .body(new ParameterizedTypeReference<>(){});
+    }
 
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
+    @Override
+    public Iterator<Book> iterateAll(int pageSize) {
+        return new BookPageIterator(after -> getPage("/books", Map.of(), pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByCondition(Map<String, String> queryParams, int pageSize) {
+        return new BookPageIterator(after -> getPage("/books/search", queryParams, pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByAuthorStartingWith(String prefix, int pageSize) {
+        return new BookPageIterator(after -> getPage("/books/author", Map.of("prefix", prefix), pageSize, after));
+    }
+
+    private BookPage getPage(String path, Map<String, String> queryParams, int limit, String after) {
+
+        MultiValueMap<String, String> multiValueMap = new LinkedMultiValueMap<>();
+        queryParams.forEach((key, value) -> multiValueMap.add(key, value));
+        multiValueMap.add("limit", String.valueOf(limit));
+        if (after != null) {
+            multiValueMap.add("after", after);
+        }
+
+        return client
+                .get()
+                .uri(path, builder -> builder
+                        .queryParams(multiValueMap)
+                        .build())
+                .accept(listAccept)
+                .retrieve()
+                .body(BookPage.class);
     }
 
     @Override
@@ -95,6 +245,7 @@ public class BookClientRestClientAdapter implements BookClient {
         BookResponse bookResponse = client
                 .post()
                 .uri("/books")
+                .contentType(MediaType.APPLICATION_JSON)
                 .body(request)
                 .retrieve()
                 .body(BookResponse.class);
@@ -108,6 +259,7 @@ public class BookClientRestClientAdapter implements BookClient {
         BookResponse bookResponse = client
                 .put()
                 .uri("/books")
+                .contentType(MediaType.APPLICATION_JSON)
                 .body(request)
                 .retrieve()
                 .body(BookResponse.class);
@@ -124,9 +276,24 @@ public class BookClientRestClientAdapter implements BookClient {
 
     @Override
     public String upload(String resourceName) {
+        return upload(new ClassPathResource(resourceName));
+    }
+
+    @Override
+    public String upload(Path file) {
+        // FormHttpMessageConverterはリクエストがStreamingHttpOutputMessageであればパートを直接書き出す
+        return upload(new FileSystemResource(file));
+    }
+
+    @Override
+    public String uploadInChunks(Path file) {
+        return new ChunkedFileUploader(ChunkedFileUploader.Transport.of(client), fanOut).upload(file);
+    }
+
+    private String upload(Resource resource) {
 
         MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
-        parts.add("file", new ClassPathResource(resourceName));
+        parts.add("file", resource);
 
         return client
                 .post()
@@ -146,6 +313,17 @@ public class BookClientRestClientAdapter implements BookClient {
                 .body(Resource.class);
     }
 
+    @Override
+    public long downloadTo(String fileName, Path target) {
+        return client
+                .get()
+                .uri("/books/files/{filename}", fileName)
+                .exchange((request, response) -> {
+                    handleError(response);
+                    return FileTransfer.transfer(response.getBody(), target);
+                });
+    }
+
     @Override
     public String pathParamLocalDate(LocalDate localDate) {
         return client
@@ -1,17 +1,32 @@
 package sample.spring.book.infrastructure;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.validation.Valid;
 
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriBuilder;
 import org.springframework.web.util.UriBuilderFactory;
@@ -21,11 +36,18 @@ import sample.spring.book.domain.Book;
 import sample.spring.book.domain.BookClient;
 import sample.spring.book.exception.DuplicateException;
 import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.jackson.JsonArrayStreamReader;
 
 @RequiredArgsConstructor
 public class BookClientRestTemplateAdapter implements BookClient {
 
     private final RestTemplate restTemplate;
+    private final FanOutExecutor fanOut;
+
+    public BookClientRestTemplateAdapter(RestTemplate restTemplate) {
+        this(restTemplate, new FanOutExecutor());
+    }
 
     @Override
     public Optional<Book> get(int id) {
@@ -36,21 +58,48 @@ public class BookClientRestTemplateAdapter implements BookClient {
                 .map(BookResponse::toModel);
     }
 
+    @Override
+    public List<Optional<Book>> getMany(Collection<Integer> ids) {
+
+        // 重複を除いたidをまとめて問い合わせ、入力順に並べ直す(存在しないidはempty)
+        Map<Integer, Book> found = fanOut.mapInBatches(new LinkedHashSet<>(ids), this::getByIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity(), (book1, book2) -> book1));
+
+        // 重複したidの2件目以降には複製を返す(Bookは可変なので同じインスタンスを共有させない)
+        Set<Integer> returned = new HashSet<>();
+        return ids.stream()
+                .map(id -> Optional.ofNullable(found.get(id))
+                        .map(book -> returned.add(id) ? book : book.copy()))
+                .toList();
+    }
+
+    private List<Book> getByIds(List<Integer> ids) {
+
+        String joinedIds = ids.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        return restTemplate.exchange(
+                "/books?ids={ids}",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<Book>>() {
+                },
+                joinedIds)
+                .getBody();
+    }
+
     @Override
     public List<Book> getAll() {
 
         // getForObjectとgetForEntityではBodyの取得型にListを使えない
-        List<BookResponse> bookResponses = restTemplate.exchange(
+        return restTemplate.exchange(
                 "/books",
                 HttpMethod.GET,
                 null,
-                new ParameterizedTypeReference<List<BookResponse>>() {
+                new ParameterizedTypeReference<List<Book>>() {
                 })
                 .getBody();
-
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
     }
 
     @Override
@@ -69,40 +118,110 @@ public class BookClientRestTemplateAdapter implements BookClient {
         queryParams.forEach((key, value) -> builder.queryParam(key, value));
         URI uri = builder.build();
 
-        List<BookResponse> bookResponses = restTemplate.exchange(
+        return restTemplate.exchange(
                 uri,
                 HttpMethod.GET,
                 null,
-                new ParameterizedTypeReference<List<BookResponse>>() {
+                new ParameterizedTypeReference<List<Book>>() {
                 })
                 .getBody();
+    }
 
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
+    @Override
+    public Stream<Book> streamAll() {
+        URI uri = restTemplate.getUriTemplateHandler().expand("/books");
+        return stream(uri);
+    }
+
+    @Override
+    public Stream<Book> streamByCondition(Map<String, String> queryParams) {
+
+        UriBuilder builder;
+        if (restTemplate.getUriTemplateHandler() instanceof UriBuilderFactory factory) {
+            builder = factory.builder();
+        } else {
+            throw new IllegalStateException("unknwon type =>" + restTemplate.getUriTemplateHandler().getClass());
+        }
+
+        builder.path("/books/search");
+        queryParams.forEach((key, value) -> builder.queryParam(key, value));
+
+        return stream(builder.build());
+    }
+
+    // RestTemplate#executeはResponseExtractorから戻った時点でレスポンスをcloseしてしまうため、
+    // RestTemplateの設定(RequestFactory、Initializer、ErrorHandler)を使って自前でリクエストを組み立てる
+    private Stream<Book> stream(URI uri) {
+        try {
+            ClientHttpRequest request = restTemplate.getRequestFactory().createRequest(uri, HttpMethod.GET);
+            restTemplate.getClientHttpRequestInitializers().forEach(initializer -> initializer.initialize(request));
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+
+            ClientHttpResponse response = request.execute();
+            if (restTemplate.getErrorHandler().hasError(response)) {
+                try (response) {
+                    restTemplate.getErrorHandler().handleError(uri, HttpMethod.GET, response);
+                }
+            }
+
+            return JsonArrayStreamReader.from(restTemplate.getMessageConverters())
+                    .read(response, Book.class);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + e.getMessage(), e);
+        }
     }
 
     @Override
     public List<Book> findByAuthorStartingWith(String prefix) {
 
-        List<BookResponse> bookResponses = restTemplate.exchange(
+        return restTemplate.exchange(
                 "/books/author?prefix={prefix}",
                 HttpMethod.GET,
                 null,
-                new ParameterizedTypeReference<List<BookResponse>>() {
+                new ParameterizedTypeReference<List<Book>>() {
                 },
                 prefix)
                 .getBody();
+    }
 
-        return bookResponses.stream()
-                .map(BookResponse::toModel)
-                .toList();
+    @Override
+    public Iterator<Book> iterateAll(int pageSize) {
+        return new BookPageIterator(after -> getPage("/books", Map.of(), pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByCondition(Map<String, String> queryParams, int pageSize) {
+        return new BookPageIterator(after -> getPage("/books/search", queryParams, pageSize, after));
+    }
+
+    @Override
+    public Iterator<Book> iterateByAuthorStartingWith(String prefix, int pageSize) {
+        return new BookPageIterator(after -> getPage("/books/author", Map.of("prefix", prefix), pageSize, after));
+    }
+
+    private BookPage getPage(String path, Map<String, String> queryParams, int limit, String after) {
+
+        UriBuilder builder;
+        if (restTemplate.getUriTemplateHandler() instanceof UriBuilderFactory factory) {
+            builder = factory.builder();
+        } else {
+            throw new IllegalStateException("unknwon type =>" + restTemplate.getUriTemplateHandler().getClass());
+        }
+
+        builder.path(path);
+        queryParams.forEach((key, value) -> builder.queryParam(key, value));
+        builder.queryParam("limit", limit);
+        if (after != null) {
+            builder.queryParam("after", after);
+        }
+
+        return restTemplate.getForObject(builder.build(), BookPage.class);
     }
 
     @Override
     public Book add(String title, String author, LocalDate published) throws DuplicateException {
         AddRequest request = new AddRequest(title, author, published);
-        BookResponse bookResponse = restTemplate.postForObject("/books", request, BookResponse.class);
+        BookResponse bookResponse = restTemplate.postForObject("/books", jsonEntity(request), BookResponse.class);
         return bookResponse.toModel();
     }
 
@@ -114,13 +233,20 @@ public class BookClientRestTemplateAdapter implements BookClient {
         BookResponse bookResponse = restTemplate.exchange(
                 "/books",
                 HttpMethod.PUT,
-                new HttpEntity<>(request),
+                jsonEntity(request),
                 BookResponse.class)
                 .getBody();
 
         return bookResponse.toModel();
     }
 
+    // CBORのコンバーターが先頭にあってもボディはJSONで送る(CBORに対応していないサーバーで415にならないように)
+    private static <T> HttpEntity<T> jsonEntity(T body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+
     @Override
     public void delete(int id) throws NotFoundException {
         restTemplate.delete("/books/{id}", id);
@@ -131,11 +257,26 @@ public class BookClientRestTemplateAdapter implements BookClient {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public String upload(Path file) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String uploadInChunks(Path file) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Resource download(String filename) {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public long downloadTo(String filename, Path target) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public String pathParamLocalDate(LocalDate localDate) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,11 @@
+package sample.spring.book.infrastructure;
+
+import java.util.List;
+
+import sample.spring.book.domain.Book;
+
+// カーソルによるページングの応答。nextは次のページのカーソル(最後のページではnull)で、中身は解釈せずにafterへ渡す
+public record BookPage(
+        List<Book> items,
+        String next) {
+}
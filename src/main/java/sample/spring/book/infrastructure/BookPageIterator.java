@@ -0,0 +1,84 @@
+package sample.spring.book.infrastructure;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+
+import sample.spring.book.domain.Book;
+
+// カーソルでページを辿りながら1件ずつ返すIterator。最初のページは最初のhasNext/nextで取得する。
+// ページを受け取った時点で次のページの取得を別スレッドで始めておくため、呼び出し元が現在のページを
+// 読み進めている間に次のページが届き、ページの境目で待たされにくい(先読みは常に1ページまで)
+class BookPageIterator implements Iterator<Book> {
+
+    // PropagateUserContextInitializerが参照する認証情報を呼び出し元から引き継ぐ
+    private static final Executor PREFETCH_EXECUTOR = new DelegatingSecurityContextExecutor(
+            Executors.newVirtualThreadPerTaskExecutor());
+
+    // 引数はafterに渡すカーソル(最初のページはnull)
+    private final Function<String, BookPage> fetcher;
+    private final Executor executor;
+
+    private Iterator<Book> current = Collections.emptyIterator();
+    private CompletableFuture<BookPage> nextPage;
+    private boolean started;
+
+    BookPageIterator(Function<String, BookPage> fetcher) {
+        this(fetcher, PREFETCH_EXECUTOR);
+    }
+
+    BookPageIterator(Function<String, BookPage> fetcher, Executor executor) {
+        this.fetcher = fetcher;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // 空のページが続いても次のカーソルがある限り辿る
+        while (!current.hasNext()) {
+            if (!started) {
+                started = true;
+                accept(fetcher.apply(null));
+            } else if (nextPage != null) {
+                accept(join(nextPage));
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    private void accept(BookPage page) {
+        current = page.items().iterator();
+        nextPage = page.next() != null
+                ? CompletableFuture.supplyAsync(() -> fetcher.apply(page.next()), executor)
+                : null;
+    }
+
+    // 先読みで発生した例外(NotFoundException等)は元の型のまま呼び出し元に返す
+    private static BookPage join(CompletableFuture<BookPage> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
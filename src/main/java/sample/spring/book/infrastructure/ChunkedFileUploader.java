@@ -0,0 +1,175 @@
+package sample.spring.book.infrastructure;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import lombok.extern.slf4j.Slf4j;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+
+// /books/uploadsの分割アップロード(開始 -> チャンクをオフセット指定でPUT -> 完了)でファイルを送る。
+// チャンクは仮想スレッドで並行に送り、通信断や5xxで失敗したチャンクだけを送り直す。
+// 送信中のチャンクはbyte[]で持つため、メモリ使用量はFanOutExecutorの同時実行数 x chunkSizeで抑えられる
+@Slf4j
+public class ChunkedFileUploader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final Transport transport;
+    private final FanOutExecutor fanOut;
+    private final int chunkSize;
+    private final int maxRetries;
+
+    public ChunkedFileUploader(Transport transport, FanOutExecutor fanOut) {
+        this(transport, fanOut, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_RETRIES);
+    }
+
+    // chunkSizeは希望値で、サーバーが上限で切り詰めた場合はその値で送る
+    public ChunkedFileUploader(Transport transport, FanOutExecutor fanOut, int chunkSize, int maxRetries) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive =>" + chunkSize);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative =>" + maxRetries);
+        }
+        this.transport = transport;
+        this.fanOut = fanOut;
+        this.chunkSize = chunkSize;
+        this.maxRetries = maxRetries;
+    }
+
+    // 戻り値はサーバーが受け付けたファイル名
+    public String upload(Path file) {
+
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+
+            long size = channel.size();
+            UploadSessionResponse session = transport.initiate(
+                    new InitiateUploadRequest(file.getFileName().toString(), size, chunkSize));
+
+            List<Long> offsets = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += session.chunkSize()) {
+                offsets.add(offset);
+            }
+            fanOut.map(offsets, offset -> send(session, channel, offset));
+
+            return transport.complete(session.uploadId());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long send(UploadSessionResponse session, FileChannel channel, long offset) {
+
+        byte[] chunk = read(channel, offset, (int) Math.min(session.chunkSize(), session.size() - offset));
+
+        for (int attempt = 0;; attempt++) {
+            try {
+                transport.putChunk(session.uploadId(), offset, chunk);
+                return offset;
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                // 4xx(オフセット不正など)は送り直しても結果が変わらないため対象外
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("retry chunk {} of {} (attempt {}): {}", offset, session.uploadId(), attempt + 1,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private byte[] read(FileChannel channel, long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("file was truncated at " + (offset + buffer.position()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.array();
+    }
+
+
+    // 分割アップロードの各操作。RestClientとHTTP Interfaceのどちらからでも送れるようにする
+    public interface Transport {
+
+        UploadSessionResponse initiate(InitiateUploadRequest request);
+
+        void putChunk(String uploadId, long offset, byte[] chunk);
+
+        String complete(String uploadId);
+
+        static Transport of(RestClient client) {
+            return new Transport() {
+
+                @Override
+                public UploadSessionResponse initiate(InitiateUploadRequest request) {
+                    return client
+                            .post()
+                            .uri("/books/uploads")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(request)
+                            .retrieve()
+                            .body(UploadSessionResponse.class);
+                }
+
+                @Override
+                public void putChunk(String uploadId, long offset, byte[] chunk) {
+                    client
+                            .put()
+                            .uri("/books/uploads/{uploadId}/chunks/{offset}", uploadId, offset)
+                            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                            .body(chunk)
+                            .retrieve()
+                            .toBodilessEntity();
+                }
+
+                @Override
+                public String complete(String uploadId) {
+                    return client
+                            .post()
+                            .uri("/books/uploads/{uploadId}/complete", uploadId)
+                            .retrieve()
+                            .body(String.class);
+                }
+            };
+        }
+
+        static Transport of(BookClientApi client) {
+            return new Transport() {
+
+                @Override
+                public UploadSessionResponse initiate(InitiateUploadRequest request) {
+                    return client.initiateUpload(request);
+                }
+
+                @Override
+                public void putChunk(String uploadId, long offset, byte[] chunk) {
+                    client.uploadChunk(uploadId, offset, chunk);
+                }
+
+                @Override
+                public String complete(String uploadId) {
+                    return client.completeUpload(uploadId);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package sample.spring.book.infrastructure;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.core.io.Resource;
+
+import lombok.RequiredArgsConstructor;
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+
+// BookClientに機能を被せるデコレーターの基底クラス。必要なメソッドだけをオーバーライドする
+@RequiredArgsConstructor
+public abstract class DelegatingBookClient implements BookClient {
+
+    protected final BookClient delegate;
+
+    @Override
+    public Optional<Book> get(int id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public List<Optional<Book>> getMany(Collection<Integer> ids) {
+        return delegate.getMany(ids);
+    }
+
+    @Override
+    public List<Book> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Book> findByCondition(Map<String, String> queryParams) {
+        return delegate.findByCondition(queryParams);
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Stream<Book> streamByCondition(Map<String, String> queryParams) {
+        return delegate.streamByCondition(queryParams);
+    }
+
+    @Override
+    public List<Book> findByAuthorStartingWith(String prefix) {
+        return delegate.findByAuthorStartingWith(prefix);
+    }
+
+    @Override
+    public Iterator<Book> iterateAll(int pageSize) {
+        return delegate.iterateAll(pageSize);
+    }
+
+    @Override
+    public Iterator<Book> iterateByCondition(Map<String, String> queryParams, int pageSize) {
+        return delegate.iterateByCondition(queryParams, pageSize);
+    }
+
+    @Override
+    public Iterator<Book> iterateByAuthorStartingWith(String prefix, int pageSize) {
+        return delegate.iterateByAuthorStartingWith(prefix, pageSize);
+    }
+
+    @Override
+    public Book add(String title, String author, LocalDate published) {
+        return delegate.add(title, author, published);
+    }
+
+    @Override
+    public Book update(Book book) {
+        return delegate.update(book);
+    }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public String upload(String resourceName) {
+        return delegate.upload(resourceName);
+    }
+
+    @Override
+    public String upload(Path file) {
+        return delegate.upload(file);
+    }
+
+    @Override
+    public String uploadInChunks(Path file) {
+        return delegate.uploadInChunks(file);
+    }
+
+    @Override
+    public Resource download(String filename) {
+        return delegate.download(filename);
+    }
+
+    @Override
+    public long downloadTo(String filename, Path target) {
+        return delegate.downloadTo(filename, target);
+    }
+
+    @Override
+    public String pathParamLocalDate(LocalDate localDate) {
+        return delegate.pathParamLocalDate(localDate);
+    }
+
+    @Override
+    public String queryParamLocalDate(LocalDate localDate) {
+        return delegate.queryParamLocalDate(localDate);
+    }
+
+    @Override
+    public Book badReturnModel() {
+        return delegate.badReturnModel();
+    }
+}
@@ -0,0 +1,7 @@
+package sample.spring.book.infrastructure;
+
+public record InitiateUploadRequest(
+        String filename,
+        long size,
+        int chunkSize) {
+}
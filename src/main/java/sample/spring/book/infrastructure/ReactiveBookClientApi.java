@@ -0,0 +1,53 @@
+package sample.spring.book.infrastructure;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.service.annotation.DeleteExchange;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import org.springframework.web.service.annotation.PostExchange;
+import org.springframework.web.service.annotation.PutExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// BookClientApiのリアクティブ版。WebClientAdapterを使ってHttpServiceProxyFactoryから生成する。
+// FluxはJSON配列を要素単位にデコードしながら流すため、配列全体の受信を待たずに先頭から処理できる
+@HttpExchange("/books")
+public interface ReactiveBookClientApi {
+
+    @GetExchange("/{id}")
+    Mono<BookResponse> get(@PathVariable int id);
+
+    @GetExchange
+    Flux<BookResponse> getAll();
+
+    @GetExchange
+    Flux<BookResponse> getByIds(@RequestParam("ids") Collection<Integer> ids);
+
+    @GetExchange("/search")
+    Flux<BookResponse> findByCondition(@RequestParam Map<String, String> queryParams);
+
+    @GetExchange("/author")
+    Flux<BookResponse> findByAuthorStartingWith(@RequestParam("prefix") String prefix);
+
+    @PostExchange
+    Mono<BookResponse> add(@RequestBody AddRequest request);
+
+    @PutExchange
+    Mono<BookResponse> update(@RequestBody UpdateRequest request);
+
+    @DeleteExchange("/{id}")
+    Mono<Void> delete(@PathVariable int id);
+
+    @GetExchange("/localdate/{localdate}")
+    Mono<String> pathParamLocalDate(@PathVariable("localdate") LocalDate localdate);
+
+    @GetExchange("/localdate")
+    Mono<String> queryParamLocalDate(@RequestParam("localdate") LocalDate localdate);
+}
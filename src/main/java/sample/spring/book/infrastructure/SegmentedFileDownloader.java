@@ -0,0 +1,223 @@
+package sample.spring.book.infrastructure;
+
+import static java.nio.file.StandardCopyOption.*;
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import lombok.extern.slf4j.Slf4j;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.FileTransfer;
+
+// /books/files/{filename}をRange指定で分割し、仮想スレッドで並行にダウンロードする。
+// 各区間は事前にサイズを確保したファイルへ位置指定で書き込むため、区間同士の書き込みは干渉しない。
+// 区間の途中で通信が切れた場合は、その区間だけ書き込めた位置からRangeを指定し直して再開する。
+// 同じディレクトリの一時ファイルに書き込み、全区間が揃ってからtargetに移動するため、
+// 失敗した場合に穴の空いたファイルがtargetに残ることはない(既存のtargetもそのまま残る)
+@Slf4j
+public class SegmentedFileDownloader {
+
+    public static final int DEFAULT_SEGMENTS = 4;
+    public static final long DEFAULT_MIN_SEGMENT_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RestClient client;
+    private final FanOutExecutor fanOut;
+    private final int segments;
+    private final long minSegmentSize;
+    private final int maxRetries;
+
+    // exchange()ではdefaultStatusHandlerが効かないためretrieve()と同じ変換を自前で行う
+    private final ResponseErrorHandler errorHandler = new BookResponseErrorHandler();
+
+    public SegmentedFileDownloader(RestClient client) {
+        this(client, DEFAULT_SEGMENTS, DEFAULT_MIN_SEGMENT_SIZE, DEFAULT_MAX_RETRIES);
+    }
+
+    // minSegmentSizeより小さい区間には分割しない(小さいファイルは1回のGETで取得する)
+    public SegmentedFileDownloader(RestClient client, int segments, long minSegmentSize, int maxRetries) {
+        if (segments <= 0) {
+            throw new IllegalArgumentException("segments must be positive =>" + segments);
+        }
+        if (minSegmentSize <= 0) {
+            throw new IllegalArgumentException("minSegmentSize must be positive =>" + minSegmentSize);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative =>" + maxRetries);
+        }
+        this.client = client;
+        this.fanOut = new FanOutExecutor(segments);
+        this.segments = segments;
+        this.minSegmentSize = minSegmentSize;
+        this.maxRetries = maxRetries;
+    }
+
+    // targetは成功した場合のみ上書きされる。戻り値は書き込んだバイト数
+    public long download(String filename, Path target) {
+
+        HttpHeaders headers = client
+                .head()
+                .uri("/books/files/{filename}", filename)
+                .retrieve()
+                .toBodilessEntity()
+                .getHeaders();
+
+        long contentLength = headers.getContentLength();
+        List<Segment> split = split(contentLength);
+
+        Path part = null;
+        try {
+            part = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName() + ".", ".part");
+
+            long written;
+            // Rangeに対応していない、またはサイズが分からない場合は1回のGETで取得する
+            if (!"bytes".equalsIgnoreCase(headers.getFirst(HttpHeaders.ACCEPT_RANGES)) || split.size() <= 1) {
+                Path whole = part;
+                written = client
+                        .get()
+                        .uri("/books/files/{filename}", filename)
+                        .exchange((request, response) -> {
+                            handleError(response);
+                            return FileTransfer.transfer(response.getBody(), whole);
+                        });
+            } else {
+                written = downloadSegments(filename, split, contentLength, part);
+            }
+
+            moveIntoPlace(part, target);
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(part); // 移動済みの場合は何もしない
+        }
+    }
+
+    private long downloadSegments(String filename, List<Segment> split, long contentLength, Path part)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(part, WRITE, TRUNCATE_EXISTING)) {
+            // 末尾に1バイト書いてファイルサイズを先に確保する
+            channel.write(ByteBuffer.allocate(1), contentLength - 1);
+            fanOut.map(split, segment -> fetch(filename, segment, channel));
+        }
+        return contentLength;
+    }
+
+    private static void moveIntoPlace(Path part, Path target) throws IOException {
+        try {
+            Files.move(part, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path part) {
+        if (part == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(part);
+        } catch (IOException e) {
+            log.warn("failed to delete {}: {}", part, e.getMessage());
+        }
+    }
+
+    private List<Segment> split(long contentLength) {
+        if (contentLength <= 0) {
+            return List.of();
+        }
+        long count = Math.max(1, Math.min(segments, contentLength / minSegmentSize));
+        long size = (contentLength + count - 1) / count;
+
+        List<Segment> split = new ArrayList<>();
+        for (long start = 0; start < contentLength; start += size) {
+            split.add(new Segment(start, Math.min(start + size, contentLength) - 1));
+        }
+        return split;
+    }
+
+    private long fetch(String filename, Segment segment, FileChannel channel) {
+
+        AtomicLong position = new AtomicLong(segment.start());
+
+        for (int attempt = 0;; attempt++) {
+            try {
+                return client
+                        .get()
+                        .uri("/books/files/{filename}", filename)
+                        .header(HttpHeaders.RANGE, "bytes=" + position.get() + "-" + segment.end())
+                        .exchange((request, response) -> write(response, channel, position, segment.end()));
+            } catch (ResourceAccessException e) {
+                // 他の区間の失敗でチャネルが閉じられた場合は再開しても意味がない
+                if (attempt >= maxRetries || !channel.isOpen()) {
+                    throw e;
+                }
+                log.warn("resume segment {} from {} (attempt {}): {}", segment, position.get(), attempt + 1,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private long write(ClientHttpResponse response, FileChannel channel, AtomicLong position, long end)
+            throws IOException {
+
+        handleError(response);
+        if (response.getStatusCode().value() != HttpStatus.PARTIAL_CONTENT.value()) {
+            throw new RestClientResponseException("range request was not satisfied", response.getStatusCode(),
+                    response.getStatusText(), response.getHeaders(), null, null);
+        }
+
+        // 読めた分は都度書き込み、途中で切断されても書き込めた位置から再開できるようにする
+        try (InputStream in = response.getBody()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (position.get() <= end) {
+                // 要求した区間を超えて書き込まないよう残りのサイズで制限する
+                int read = in.read(buffer, 0, (int) Math.min(BUFFER_SIZE, end + 1 - position.get()));
+                if (read < 0) {
+                    // exchange()がResourceAccessExceptionに変換するため、呼び出し元で再開される
+                    throw new IOException("premature end of range at " + position.get());
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    position.addAndGet(channel.write(chunk, position.get()));
+                }
+            }
+        }
+        return position.get();
+    }
+
+    private void handleError(ClientHttpResponse response) throws IOException {
+        if (errorHandler.hasError(response)) {
+            errorHandler.handleError(response);
+        }
+        if (response.getStatusCode().isError()) {
+            throw new RestClientResponseException("unexpected status", response.getStatusCode(),
+                    response.getStatusText(), response.getHeaders(), null, null);
+        }
+    }
+
+    // endは区間の最後のバイトの位置(Rangeヘッダーと同じく両端を含む)
+    record Segment(long start, long end) {
+    }
+}
@@ -0,0 +1,111 @@
+package sample.spring.book.infrastructure;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.infrastructure.component.Caller;
+
+// 同じ引数で同時に呼ばれた参照系メソッドを1回の通信にまとめ、結果を共有するデコレーター(single-flight)。
+// 結果はキャッシュせず、通信中の呼び出しに相乗りするだけなので更新系の整合性には影響しない。
+// 相乗りは同じ認証情報(Caller)の呼び出し元の間に限り、異なるユーザーに他のユーザーの結果を返すことはない
+public class SingleFlightBookClient extends DelegatingBookClient {
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    public SingleFlightBookClient(BookClient delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Optional<Book> get(int id) {
+        return execute(Key.of("get", id), () -> delegate.get(id), book -> book.map(Book::copy));
+    }
+
+    @Override
+    public List<Book> getAll() {
+        return execute(Key.of("getAll", null), delegate::getAll, SingleFlightBookClient::copyAll);
+    }
+
+    @Override
+    public List<Book> findByCondition(Map<String, String> queryParams) {
+        // 指定順が違うだけの検索条件は同じ問い合わせとして扱う
+        Key key = Key.of("findByCondition", new TreeMap<>(queryParams));
+        return execute(key, () -> delegate.findByCondition(queryParams), SingleFlightBookClient::copyAll);
+    }
+
+    @Override
+    public List<Book> findByAuthorStartingWith(String prefix) {
+        Key key = Key.of("findByAuthorStartingWith", prefix);
+        return execute(key, () -> delegate.findByAuthorStartingWith(prefix), SingleFlightBookClient::copyAll);
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(Key key, Supplier<T> call, UnaryOperator<T> copier) {
+
+        calls.increment();
+
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, own);
+
+        if (leader != null) {
+            collapsed.increment();
+            // Bookは可変なので相乗りした呼び出し元には複製を返す
+            return copier.apply((T) await(leader));
+        }
+
+        try {
+            T result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    private static List<Book> copyAll(List<Book> books) {
+        return books.stream()
+                .map(Book::copy)
+                .toList();
+    }
+
+    private record Key(Caller caller, String method, Object args) {
+
+        static Key of(String method, Object args) {
+            return new Key(Caller.current(), method, args);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package sample.spring.book.infrastructure;
+
+public record UploadSessionResponse(
+        String uploadId,
+        String filename,
+        long size,
+        int chunkSize) {
+}
@@ -0,0 +1,91 @@
+package sample.spring.book.infrastructure.component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+// HttpLogRecordを有界キューに積み、専用の仮想スレッドで文字列化して出力する。
+// 呼び出し元(リクエストを送ったスレッド)は整形とログのI/Oを待たない。キューが一杯の場合はブロックせずに捨てる。
+// 出力スレッドは待ちの間キャリアスレッドを占有しないため、インスタンス毎に1本持っても高くつかない
+@Slf4j
+public class AsyncHttpLogAppender implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final BlockingQueue<HttpLogRecord> queue;
+    private final Consumer<HttpLogRecord> sink;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+
+    public AsyncHttpLogAppender() {
+        this(DEFAULT_QUEUE_CAPACITY, record -> log.info(record.format()));
+    }
+
+    public AsyncHttpLogAppender(int queueCapacity, Consumer<HttpLogRecord> sink) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive =>" + queueCapacity);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sink = sink;
+        this.worker = Thread.ofVirtual()
+                .name("http-log-appender")
+                .start(this::drain);
+    }
+
+    // 既定の出力先を使うLoggingClientHttpRequestFactoryで共有するインスタンス
+    public static AsyncHttpLogAppender getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // キューに積めなかった場合はfalse
+    public boolean append(HttpLogRecord record) {
+        if (!queue.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // キューに残っている分を出力してから終了する。待っている間に割り込まれた場合は待つのをやめて割り込み状態を戻す
+    @Override
+    public void close() {
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                write(queue.take());
+            }
+        } catch (InterruptedException e) {
+            HttpLogRecord record;
+            while ((record = queue.poll()) != null) {
+                write(record);
+            }
+        }
+    }
+
+    private void write(HttpLogRecord record) {
+        try {
+            sink.accept(record);
+        } catch (RuntimeException e) {
+            log.warn("failed to write http log", e);
+        }
+    }
+
+    private static class DefaultHolder {
+        static final AsyncHttpLogAppender INSTANCE = new AsyncHttpLogAppender();
+    }
+}
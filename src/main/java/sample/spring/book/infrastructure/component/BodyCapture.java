@@ -0,0 +1,109 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+
+// 通信路を流れるボディの先頭maxBytesだけを写し取る。全体のバイト数は数えるが内容は保持しない
+class BodyCapture {
+
+    // 文字列としてログに出すボディの種類(画像などのバイナリはバイト数だけを出す)
+    private static final List<MediaType> TEXT_TYPES = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_XML,
+            MediaType.APPLICATION_FORM_URLENCODED,
+            MediaType.parseMediaType("text/*"),
+            MediaType.parseMediaType("application/*+json"),
+            MediaType.parseMediaType("application/*+xml"));
+
+    private final int maxBytes;
+    private byte[] captured;
+    private int length;
+    private long total;
+
+    BodyCapture(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    OutputStream tee(OutputStream out) {
+        return new FilterOutputStream(out) {
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                capture(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                capture(b, off, len);
+            }
+        };
+    }
+
+    InputStream tee(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) {
+                    capture(new byte[] { (byte) b }, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    capture(b, off, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    // 先頭maxBytesの内容。テキストでなければnull(マルチバイト文字の途中で切れた分は置換文字になる)
+    String preview(MediaType contentType) {
+        if (length == 0 || contentType == null || TEXT_TYPES.stream().noneMatch(t -> t.includes(contentType))) {
+            return null;
+        }
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return new String(captured, 0, length, charset);
+    }
+
+    boolean isTruncated() {
+        return total > length;
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        total += len;
+        int n = Math.min(len, maxBytes - length);
+        if (n <= 0) {
+            return;
+        }
+        if (captured == null) {
+            // 小さなボディのためにmaxBytes分を確保しないよう、最初の書き込みの大きさに合わせる
+            captured = new byte[Math.min(maxBytes, Math.max(len, 256))];
+        } else if (captured.length < length + n) {
+            byte[] grown = new byte[Math.min(maxBytes, Math.max(length + n, captured.length * 2))];
+            System.arraycopy(captured, 0, grown, 0, length);
+            captured = grown;
+        }
+        System.arraycopy(b, off, captured, length, n);
+        length += n;
+    }
+}
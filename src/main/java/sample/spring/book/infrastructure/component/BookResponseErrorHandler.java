@@ -5,12 +5,14 @@ import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.util.FileCopyUtils;
 import org.springframework.web.client.ResponseErrorHandler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import sample.spring.book.exception.DuplicateException;
 import sample.spring.book.exception.ErrorMessage;
@@ -25,23 +27,52 @@ public class BookResponseErrorHandler implements ResponseErrorHandler {
             HttpStatus.NOT_FOUND.value(),
             HttpStatus.BAD_REQUEST.value());
 
+    public static final String ERRORS = "book.client.errors";
+
+    // nullの場合は変換した例外を記録しない
+    private final MeterRegistry registry;
+
+    public BookResponseErrorHandler() {
+        this(null);
+    }
+
+    public BookResponseErrorHandler(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
     @Override
     public boolean hasError(ClientHttpResponse res) throws IOException {
-        return HANDLE_STATUS.contains(res.getStatusCode().value());
+        return isHandled(res.getStatusCode());
     }
 
     @Override
     public void handleError(ClientHttpResponse response) throws IOException {
-
         ErrorMessage message = readBody(response);
-        HttpStatus status = HttpStatus.resolve(response.getStatusCode().value());
-
-        switch (status) {
-            case HttpStatus.CONFLICT -> throw new DuplicateException(message);
-            case HttpStatus.NOT_FOUND -> throw new NotFoundException(message);
-            case HttpStatus.BAD_REQUEST -> throw new ValidationException(message);
-            default -> throw new IllegalArgumentException("Unexpected value: " + response.getStatusCode());
+        RuntimeException exception = toException(response.getStatusCode(), message);
+        if (registry != null) {
+            registry.counter(ERRORS,
+                    "status", String.valueOf(response.getStatusCode().value()),
+                    "exception", exception.getClass().getSimpleName())
+                    .increment();
         }
+        throw exception;
+    }
+
+    // WebClient(ReactiveBookResponseErrorHandler)からも同じ変換ルールを使う
+    public static boolean isHandled(HttpStatusCode statusCode) {
+        return HANDLE_STATUS.contains(statusCode.value());
+    }
+
+    public static RuntimeException toException(HttpStatusCode statusCode, ErrorMessage message) {
+
+        HttpStatus status = HttpStatus.resolve(statusCode.value());
+
+        return switch (status) {
+            case HttpStatus.CONFLICT -> new DuplicateException(message);
+            case HttpStatus.NOT_FOUND -> new NotFoundException(message);
+            case HttpStatus.BAD_REQUEST -> new ValidationException(message);
+            default -> new IllegalArgumentException("Unexpected value: " + statusCode);
+        };
     }
 
     private ObjectMapper mapper = new ObjectMapper();
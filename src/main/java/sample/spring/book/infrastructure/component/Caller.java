@@ -0,0 +1,33 @@
+package sample.spring.book.infrastructure.component;
+
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+// 呼び出し元の認証情報のうち、PropagateUserContextInitializerがUser-ID/Rolesヘッダーで送る値。
+// サーバーはこの値によって異なる結果を返しうるため、結果を呼び出し元の間で共有する処理(相乗り、バッチ、キャッシュ)は
+// これをキーに含める。未認証の呼び出し元はuserId、rolesともnull
+public record Caller(String userId, String roles) {
+
+    public static final Caller ANONYMOUS = new Caller(null, null);
+
+    public static Caller current() {
+        return of(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    public static Caller of(Authentication auth) {
+        if (auth == null || !auth.isAuthenticated()) {
+            return ANONYMOUS;
+        }
+        return new Caller(String.valueOf(auth.getPrincipal()), auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(",")));
+    }
+
+    public boolean isAuthenticated() {
+        return userId != null;
+    }
+}
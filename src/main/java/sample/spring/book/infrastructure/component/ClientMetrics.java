@@ -0,0 +1,204 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.util.UriTemplate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+// MetricsInterceptorとMetricsClientHttpRequestFactoryで共通のメーター記録処理
+class ClientMetrics {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry registry;
+    private final List<UriTemplate> uriTemplates;
+
+    ClientMetrics(MeterRegistry registry, List<String> uriTemplates) {
+        this.registry = registry;
+        // "/books/search"が"/books/{id}"に吸収されないよう変数の少ないテンプレートから照合する
+        this.uriTemplates = uriTemplates.stream()
+                .map(UriTemplate::new)
+                .sorted(Comparator.comparingInt(template -> template.getVariableNames().size()))
+                .toList();
+    }
+
+    String uriTemplate(URI uri) {
+        String path = uri.getRawPath();
+        return uriTemplates.stream()
+                .filter(template -> template.matches(path))
+                .map(UriTemplate::toString)
+                .findFirst()
+                .orElse(UNKNOWN_URI);
+    }
+
+    void recordRequestSize(String method, String uri, long size) {
+        summary(MetricsInterceptor.REQUEST_SIZE, method, uri).record(size);
+    }
+
+    void recordResponse(long start, String method, String uri, HttpStatusCode status) {
+        record(start, method, uri, String.valueOf(status.value()), outcome(status), "none");
+    }
+
+    void recordError(long start, String method, String uri, Exception e) {
+        record(start, method, uri, "IO_ERROR", "UNKNOWN", e.getClass().getSimpleName());
+    }
+
+    // レスポンスボディは読み出しながら数え、closeの時点で記録する(ボディをバッファしない)
+    ClientHttpResponse sizeRecording(ClientHttpResponse response, String method, String uri) {
+        return new SizeRecordingResponse(response, summary(MetricsInterceptor.RESPONSE_SIZE, method, uri));
+    }
+
+    // 書き込まれたバイト数を数え、closeまたは送信後(recordRequestSize)に記録する
+    static CountingOutputStream counting(OutputStream body) {
+        return new CountingOutputStream(body);
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags("method", method, "uri", uri)
+                .register(registry);
+    }
+
+    private void record(long start, String method, String uri, String status, String outcome, String exception) {
+        Timer.builder(MetricsInterceptor.REQUESTS)
+                .tags(Tags.of("method", method, "uri", uri, "status", status, "outcome", outcome,
+                        "exception", exception))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(HttpStatusCode status) {
+        if (status.is2xxSuccessful()) {
+            return "SUCCESS";
+        }
+        if (status.is4xxClientError()) {
+            return "CLIENT_ERROR";
+        }
+        if (status.is5xxServerError()) {
+            return "SERVER_ERROR";
+        }
+        return status.is3xxRedirection() ? "REDIRECTION" : "INFORMATIONAL";
+    }
+
+    private static class SizeRecordingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final DistributionSummary summary;
+        private CountingInputStream body;
+        private boolean recorded;
+
+        SizeRecordingResponse(ClientHttpResponse delegate, DistributionSummary summary) {
+            this.delegate = delegate;
+            this.summary = summary;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (!recorded) {
+                recorded = true;
+                long contentLength = delegate.getHeaders().getContentLength();
+                summary.record(body != null ? body.count : Math.max(contentLength, 0));
+            }
+            delegate.close();
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
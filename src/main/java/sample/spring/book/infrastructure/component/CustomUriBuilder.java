@@ -2,12 +2,9 @@ package sample.spring.book.infrastructure.component;
 
 import java.net.URI;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.util.UriBuilder;
@@ -15,106 +12,113 @@ import org.springframework.web.util.UriBuilder;
 public class CustomUriBuilder implements UriBuilder {
 
     private final UriBuilder delegate;
-    private final DateTimeFormatter formatter;
+    private final LocalDateCodec codec;
 
     public CustomUriBuilder(UriBuilder original, String localDataPattern) {
+        this(original, LocalDateCodec.of(localDataPattern));
+    }
+
+    // LocalDateCodecはスレッドセーフなため、ファクトリーで1度だけ作ったものを共有する
+    public CustomUriBuilder(UriBuilder original, LocalDateCodec codec) {
         this.delegate = original;
-        this.formatter = DateTimeFormatter.ofPattern(localDataPattern);
+        this.codec = codec;
     }
 
     public UriBuilder scheme(String scheme) {
-        return delegate.scheme(scheme);
+        delegate.scheme(scheme);
+        return this;
     }
 
     public UriBuilder userInfo(String userInfo) {
-        return delegate.userInfo(userInfo);
+        delegate.userInfo(userInfo);
+        return this;
     }
 
     public UriBuilder host(String host) {
-        return delegate.host(host);
+        delegate.host(host);
+        return this;
     }
 
     public UriBuilder port(int port) {
-        return delegate.port(port);
+        delegate.port(port);
+        return this;
     }
 
     public UriBuilder port(String port) {
-        return delegate.port(port);
+        delegate.port(port);
+        return this;
     }
 
     public UriBuilder path(String path) {
-        return delegate.path(path);
+        delegate.path(path);
+        return this;
     }
 
     public UriBuilder replacePath(String path) {
-        return delegate.replacePath(path);
+        delegate.replacePath(path);
+        return this;
     }
 
     public UriBuilder pathSegment(String... pathSegments) throws IllegalArgumentException {
-        return delegate.pathSegment(pathSegments);
+        delegate.pathSegment(pathSegments);
+        return this;
     }
 
     public UriBuilder query(String query) {
-        return delegate.query(query);
+        delegate.query(query);
+        return this;
     }
 
     public UriBuilder replaceQuery(String query) {
-        return delegate.replaceQuery(query);
+        delegate.replaceQuery(query);
+        return this;
     }
 
     public UriBuilder queryParam(String name, Object... values) {
         // 特定の型だけはこの時点で文字列化して実体のUriBuilderに渡す
-        List<Object> convetedValues = Stream.of(values)
-                .map(this::convertValue)
-                .toList();
-        return delegate.queryParam(name, convetedValues);
+        delegate.queryParam(name, convertValues(values));
+        return this;
     }
 
     public UriBuilder queryParam(String name, Collection<?> values) {
-        List<Object> convetedValues = values.stream()
-                .map(this::convertValue)
-                .toList();
-        return delegate.queryParam(name, convetedValues);
+        delegate.queryParam(name, convertValues(values));
+        return this;
     }
 
     public UriBuilder queryParamIfPresent(String name, Optional<?> value) {
         value.map(this::convertValue)
                 .ifPresent(v -> delegate.queryParam(name, v));
-        return delegate;
+        return this;
     }
 
     public UriBuilder queryParams(MultiValueMap<String, String> params) {
-        return delegate.queryParams(params);
+        delegate.queryParams(params);
+        return this;
     }
 
     public UriBuilder replaceQueryParam(String name, Object... values) {
-        List<Object> convetedValues = Stream.of(values)
-                .map(this::convertValue)
-                .toList();
-        return delegate.replaceQueryParam(name, convetedValues);
+        delegate.replaceQueryParam(name, convertValues(values));
+        return this;
     }
 
     public UriBuilder replaceQueryParam(String name, Collection<?> values) {
-        List<Object> convetedValues = values.stream()
-                .map(this::convertValue)
-                .toList();
-        return delegate.replaceQueryParam(name, convetedValues);
+        delegate.replaceQueryParam(name, convertValues(values));
+        return this;
     }
 
     public UriBuilder replaceQueryParams(MultiValueMap<String, String> params) {
-        return delegate.replaceQueryParams(params);
+        delegate.replaceQueryParams(params);
+        return this;
     }
 
     public UriBuilder fragment(String fragment) {
-        return delegate.fragment(fragment);
+        delegate.fragment(fragment);
+        return this;
     }
 
     // パスパラメータの変換はこのメソッドで行われる
     public URI build(Object... uriVariables) {
-        Object[] convetedValues = Stream.of(uriVariables)
-                .map(this::convertValue)
-                .toArray();
-        return delegate.build(convetedValues);
+        return delegate.build(convertValues(uriVariables));
     }
 
     public URI build(Map<String, ?> uriVariables) {
@@ -125,9 +129,35 @@ public class CustomUriBuilder implements UriBuilder {
         return delegate.toUriString();
     }
 
+    // 変換が必要な値がなければ配列やリストを作り直さずにそのまま渡す
+    private Object[] convertValues(Object[] values) {
+        Object[] converted = values;
+        for (int i = 0; i < values.length; i++) {
+            Object value = convertValue(values[i]);
+            if (value != values[i]) {
+                if (converted == values) {
+                    converted = values.clone();
+                }
+                converted[i] = value;
+            }
+        }
+        return converted;
+    }
+
+    private Collection<?> convertValues(Collection<?> values) {
+        for (Object value : values) {
+            if (value instanceof LocalDate) {
+                return values.stream()
+                        .map(this::convertValue)
+                        .toList();
+            }
+        }
+        return values;
+    }
+
     private Object convertValue(Object value) {
         return switch (value) {
-            case LocalDate ld -> ld.format(formatter);
+            case LocalDate ld -> codec.format(ld);
             default -> value;
         };
     }
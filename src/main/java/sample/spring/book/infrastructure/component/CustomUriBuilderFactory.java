@@ -1,16 +1,28 @@
 package sample.spring.book.infrastructure.component;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.core.env.Environment;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 public class CustomUriBuilderFactory extends DefaultUriBuilderFactory {
 
     private static final String DEFAULT_LOCAL_DATE_PATTERN = "yyyy-MM-dd";
 
+    // キャッシュするテンプレート数の上限(展開済みのURIが渡され続けても際限なく増えないようにする)
+    static final int MAX_CACHED_TEMPLATES = 256;
+
     private final Environment env;
     private final String uriTemplate;
-    private final String localDatePattern;
+    private final LocalDateCodec codec;
+    private final boolean cacheTemplates;
+
+    // cacheTemplatesの場合に使う解決済みのベースURIと、エンドポイントのパス毎に解析済みのテンプレート
+    private volatile String resolvedTemplate;
+    private final Map<String, DefaultUriBuilderFactory> templates = new ConcurrentHashMap<>();
 
     public CustomUriBuilderFactory(Environment env) {
         this(env, "", DEFAULT_LOCAL_DATE_PATTERN);
@@ -21,21 +33,77 @@ public class CustomUriBuilderFactory extends DefaultUriBuilderFactory {
     }
 
     public CustomUriBuilderFactory(Environment env, String uriTemplate, String localDataPattern) {
+        this(env, uriTemplate, localDataPattern, false);
+    }
+
+    // cacheTemplatesをtrueにすると、ベースURIのプレースホルダーは初回に1度だけ解決し、
+    // パス毎に解析したテンプレートを使い回す(プロパティが変わった場合はrefreshを呼ぶ)
+    public CustomUriBuilderFactory(Environment env, String uriTemplate, String localDataPattern,
+            boolean cacheTemplates) {
         this.env = env;
         this.uriTemplate= uriTemplate;
-        this.localDatePattern = localDataPattern;
+        this.codec = LocalDateCodec.of(localDataPattern);
+        this.cacheTemplates = cacheTemplates;
     }
 
     @Override
     public UriBuilder uriString(String uriTemplate) {
+        if (cacheTemplates) {
+            return new CustomUriBuilder(parsedTemplate(uriTemplate).builder(), codec);
+        }
         String baseUriTemplate = resolveTemplate() + uriTemplate;
         UriBuilder original = super.uriString(baseUriTemplate);
-        return new CustomUriBuilder(original, localDatePattern);
+        return new CustomUriBuilder(original, codec);
     }
 
     @Override
     public UriBuilder builder() {
-        return this.uriString(resolveTemplate());
+        return cacheTemplates ? this.uriString("") : this.uriString(resolveTemplate());
+    }
+
+    // ベースURIを解決し直し、解析済みのテンプレートを破棄する
+    public void refresh() {
+        resolvedTemplate = null;
+        templates.clear();
+    }
+
+    @Override
+    public void setEncodingMode(EncodingMode encodingMode) {
+        super.setEncodingMode(encodingMode);
+        refresh();
+    }
+
+    @Override
+    public void setDefaultUriVariables(Map<String, ?> defaultUriVariables) {
+        super.setDefaultUriVariables(defaultUriVariables);
+        refresh();
+    }
+
+    @Override
+    public void setParsePath(boolean parsePath) {
+        super.setParsePath(parsePath);
+        refresh();
+    }
+
+    // 解析済みのテンプレートを持つファクトリーは、空のテンプレートに対して複製したビルダーを返す
+    private DefaultUriBuilderFactory parsedTemplate(String uriTemplate) {
+        DefaultUriBuilderFactory parsed = templates.get(uriTemplate);
+        if (parsed != null) {
+            return parsed;
+        }
+        String base = resolvedTemplate;
+        if (base == null) {
+            base = resolveTemplate();
+            resolvedTemplate = base;
+        }
+        parsed = new DefaultUriBuilderFactory(UriComponentsBuilder.fromUriString(base + uriTemplate));
+        parsed.setEncodingMode(getEncodingMode());
+        parsed.setDefaultUriVariables(getDefaultUriVariables());
+        parsed.setParsePath(shouldParsePath());
+        if (templates.size() < MAX_CACHED_TEMPLATES) {
+            templates.putIfAbsent(uriTemplate, parsed);
+        }
+        return parsed;
     }
 
     private String resolveTemplate() {
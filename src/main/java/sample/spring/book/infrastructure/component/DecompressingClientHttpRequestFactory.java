@@ -0,0 +1,158 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+// Accept-Encodingで圧縮したレスポンスを要求し、Content-Encodingに応じてボディを展開するClientHttpRequestFactoryのデコレーター。
+// 展開はボディのInputStreamをラップして行うため、呼び出し元が読んだ分だけが展開される
+// (JsonArrayStreamReaderの逐次読み出しと組み合わせても、ボディ全体をbyte[]に展開しない)。
+// HttpComponentsのように下位のクライアントが自前で展開する場合はContent-Encodingが外されているため何もしない
+public class DecompressingClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    // 優先順。zstdはJDKに展開の実装がないため要求しない
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final ClientHttpRequestFactory originalFactory;
+
+    public DecompressingClientHttpRequestFactory(ClientHttpRequestFactory originalFactory) {
+        this.originalFactory = originalFactory;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        return new DecompressingClientHttpRequest(originalFactory.createRequest(uri, httpMethod));
+    }
+
+
+    private static class DecompressingClientHttpRequest extends DelegatingClientHttpRequest {
+
+        DecompressingClientHttpRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            HttpHeaders headers = getHeaders();
+            // 呼び出し元が指定した場合と、Range指定(圧縮後のバイト位置を指すことになる)の場合は要求しない
+            if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING) && !headers.containsKey(HttpHeaders.RANGE)) {
+                headers.set(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+            }
+            ClientHttpResponse response = delegate.execute();
+
+            String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding == null) {
+                return response;
+            }
+            return switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" -> new DecompressingClientHttpResponse(response, false);
+                case "deflate" -> new DecompressingClientHttpResponse(response, true);
+                default -> response; // identityや未知の方式はそのまま返す
+            };
+        }
+    }
+
+    static class DecompressingClientHttpResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final boolean deflate;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        DecompressingClientHttpResponse(ClientHttpResponse delegate, boolean deflate) {
+            this.delegate = delegate;
+            this.deflate = deflate;
+
+            // 展開後のボディに合わせ、Content-EncodingとContent-Length(圧縮後のサイズ)を外す
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(delegate.getHeaders());
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = decompress(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (body != null) {
+                    body.close(); // Inflaterのネイティブメモリを解放する
+                }
+            } catch (IOException e) {
+                // 展開側のcloseの失敗は無視し、レスポンスのcloseを優先する
+            } finally {
+                delegate.close();
+            }
+        }
+
+        private InputStream decompress(InputStream compressed) throws IOException {
+
+            // HEADや304などContent-Encodingだけが付いた空のボディは展開しない(GZIPInputStreamはヘッダーを読もうとして失敗する)
+            PushbackInputStream in = new PushbackInputStream(compressed, 2);
+            byte[] head = in.readNBytes(2);
+            if (head.length == 0) {
+                return InputStream.nullInputStream();
+            }
+            in.unread(head);
+
+            if (!deflate) {
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            }
+            // HTTPのdeflateはzlib形式だが、ヘッダーなし(raw deflate)で返すサーバーもあるため先頭で判別する
+            Inflater inflater = new Inflater(!isZlibHeader(head));
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end(); // 自前で渡したInflaterはInflaterInputStreamが解放しない
+                    }
+                }
+            };
+        }
+
+        // RFC 1950: CM=8(deflate)かつ先頭2バイトが31の倍数
+        private static boolean isZlibHeader(byte[] head) {
+            return head.length == 2
+                    && (head[0] & 0x0f) == 8
+                    && (((head[0] & 0xff) << 8) | (head[1] & 0xff)) % 31 == 0;
+        }
+    }
+}
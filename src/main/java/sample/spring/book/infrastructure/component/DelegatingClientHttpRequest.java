@@ -0,0 +1,76 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import lombok.RequiredArgsConstructor;
+
+// ClientHttpRequestFactoryのデコレーターが返すリクエストの基底クラス。
+// ClientHttpRequestInterceptorはボディをbyte[]で受け取るため、介在させるとボディはすべてメモリにバッファされる。
+// こちらはStreamingHttpOutputMessageをラップ元へそのまま引き継ぐため、マルチパートのファイル送信なども
+// チャンク単位で送信される。ボディを覗きたい場合はdecorateBodyで出力先のOutputStreamをラップする
+@RequiredArgsConstructor
+public abstract class DelegatingClientHttpRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+    protected final ClientHttpRequest delegate;
+
+    @Override
+    public HttpMethod getMethod() {
+        return delegate.getMethod();
+    }
+
+    @Override
+    public URI getURI() {
+        return delegate.getURI();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public OutputStream getBody() throws IOException {
+        return decorateBody(delegate.getBody());
+    }
+
+    @Override
+    public void setBody(Body body) {
+        if (delegate instanceof StreamingHttpOutputMessage streaming) {
+            streaming.setBody(new Body() {
+                @Override
+                public void writeTo(OutputStream outputStream) throws IOException {
+                    body.writeTo(decorateBody(outputStream));
+                }
+
+                @Override
+                public boolean repeatable() {
+                    return body.repeatable();
+                }
+            });
+        } else {
+            try {
+                body.writeTo(getBody());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public ClientHttpResponse execute() throws IOException {
+        return delegate.execute();
+    }
+
+    protected OutputStream decorateBody(OutputStream body) {
+        return body;
+    }
+}
@@ -0,0 +1,112 @@
+package sample.spring.book.infrastructure.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+public class FanOutExecutor {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final int maxConcurrency;
+    private final int batchSize;
+
+    public FanOutExecutor() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_BATCH_SIZE);
+    }
+
+    public FanOutExecutor(int maxConcurrency) {
+        this(maxConcurrency, DEFAULT_BATCH_SIZE);
+    }
+
+    public FanOutExecutor(int maxConcurrency, int batchSize) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive =>" + maxConcurrency);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive =>" + batchSize);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.batchSize = batchSize;
+    }
+
+    public <T, R> List<R> mapInBatches(Collection<T> inputs, Function<List<T>, List<R>> batchTask) {
+
+        // URL長とサーバー側の上限を超えないようbatchSize件ずつに分割して並行に問い合わせる
+        List<T> all = List.copyOf(inputs);
+        List<List<T>> batches = new ArrayList<>((all.size() + batchSize - 1) / batchSize);
+        for (int from = 0; from < all.size(); from += batchSize) {
+            batches.add(all.subList(from, Math.min(from + batchSize, all.size())));
+        }
+
+        if (batches.isEmpty()) {
+            return List.of();
+        }
+        if (batches.size() == 1) { // 1回で済むならスレッドを起こさない
+            return batchTask.apply(batches.getFirst());
+        }
+
+        List<R> results = new ArrayList<>(all.size());
+        map(batches, batchTask).forEach(results::addAll);
+        return results;
+    }
+
+    public <T, R> List<R> map(Collection<T> inputs, Function<? super T, ? extends R> task) {
+
+        // 仮想スレッドは安価だが接続先の負荷を抑えるため同時実行数はセマフォで制限する
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        // PropagateUserContextInitializerが参照する認証情報をワーカースレッドに引き継ぐ
+        try (ExecutorService executor = new DelegatingSecurityContextExecutorService(
+                Executors.newVirtualThreadPerTaskExecutor())) {
+
+            List<Future<R>> futures = new ArrayList<>(inputs.size());
+            for (T input : inputs) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return task.apply(input);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            // 結果は入力順に詰め直す
+            List<R> results = new ArrayList<>(futures.size());
+            for (Future<R> future : futures) {
+                results.add(await(future, executor));
+            }
+            return results;
+        }
+    }
+
+    private <R> R await(Future<R> future, ExecutorService executor) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for fan-out results", e);
+        } catch (ExecutionException e) {
+            // 1件でも失敗したら残りは打ち切り、元の例外(NotFoundException等)をそのまま返す
+            executor.shutdownNow();
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
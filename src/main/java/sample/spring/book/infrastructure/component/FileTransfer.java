@@ -0,0 +1,34 @@
+package sample.spring.book.infrastructure.component;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+// 受信したボディをFileChannel#transferFromでファイルに書き出す。
+// JDK内部の固定サイズのバッファ単位で転送するため、ボディ全体をヒープに載せることはない
+public final class FileTransfer {
+
+    // 1回のtransferFromで転送する上限
+    private static final long CHUNK_SIZE = 1024 * 1024;
+
+    private FileTransfer() {
+    }
+
+    // targetは上書きされる。戻り値は書き込んだバイト数
+    public static long transfer(InputStream body, Path target) throws IOException {
+        try (ReadableByteChannel in = Channels.newChannel(body);
+                FileChannel out = FileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(in, position, CHUNK_SIZE)) > 0) {
+                position += transferred;
+            }
+            return position;
+        }
+    }
+}
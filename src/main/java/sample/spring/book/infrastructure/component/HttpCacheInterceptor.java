@@ -0,0 +1,518 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+// RFC 9111に沿ってGETのレスポンスをメモリにキャッシュするインターセプター(private cache)。
+// Cache-Control(max-age, no-cache, no-store, must-revalidate, stale-while-revalidate)と
+// ETag/Last-Modifiedによる条件付きリクエスト(304)に対応する。
+// stale-while-revalidateの窓の中でstaleなエントリーを返すのはrevalidationFactoryを指定した場合だけで、
+// 指定がない場合は窓の中でも鮮度切れと同じく同期で再検証する(RFC 5861ではキャッシュ側の対応は任意)。
+@Slf4j
+public class HttpCacheInterceptor implements ClientHttpRequestInterceptor {
+
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    // BookClientApiのコレクション。配下への書き込みは/books/{id}だけでなく一覧や検索の結果も変えるため、
+    // 書き込みが成功したらコレクション配下のエントリーをまとめて無効化する(更新はPUT /booksでidがボディにある)
+    public static final List<String> BOOK_COLLECTIONS = List.of("/books");
+
+    // 無効化の対象にする更新系のメソッド(RFC 9111 4.4)
+    private static final Set<HttpMethod> UNSAFE_METHODS = Set.of(
+            HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final ClientHttpRequestFactory revalidationFactory;
+    private final Clock clock;
+    private final List<String> collections;
+
+    // アクセス順のLinkedHashMapで保持し、合計サイズがmaxBytesを超えたら古いものから捨てる
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> store = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    // 無効化の度に増やす。GETの開始後に無効化があった場合は、そのレスポンス(古い可能性がある)を保存しない
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    public HttpCacheInterceptor() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    // stale-while-revalidateは使わず、staleなエントリーは常に同期で再検証する
+    public HttpCacheInterceptor(long maxBytes) {
+        this(maxBytes, null, Clock.systemUTC());
+    }
+
+    // revalidationFactoryを指定した場合だけstale-while-revalidateをバックグラウンドで再検証する。
+    // 指定がない場合はstaleなエントリーを同期で再検証する
+    public HttpCacheInterceptor(long maxBytes, ClientHttpRequestFactory revalidationFactory, Clock clock) {
+        this(maxBytes, revalidationFactory, clock, BOOK_COLLECTIONS);
+    }
+
+    public HttpCacheInterceptor(long maxBytes, ClientHttpRequestFactory revalidationFactory, Clock clock,
+            List<String> collections) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive =>" + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.max(1, maxBytes / 8);
+        this.revalidationFactory = revalidationFactory;
+        this.clock = clock;
+        this.collections = List.copyOf(collections);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+
+        if (request.getMethod() != HttpMethod.GET) {
+            ClientHttpResponse response = execution.execute(request, body);
+            // 更新系のリクエストが成功した後で、書き込み先とLocation/Content-Locationのエントリーを無効化する(RFC 9111 4.4)。
+            // 実行前に無効化すると、並行するGETが書き込み前のボディを保存し直してしまう
+            if (UNSAFE_METHODS.contains(request.getMethod()) && !response.getStatusCode().isError()) {
+                invalidateAfterWrite(request.getURI(), response.getHeaders());
+            }
+            return response;
+        }
+
+        long generation = currentGeneration();
+
+        Map<String, String> requestDirectives = directives(request.getHeaders());
+        if (requestDirectives.containsKey("no-store")) {
+            return execution.execute(request, body);
+        }
+
+        Key key = Key.of(request);
+        Entry entry = lookup(key, request.getHeaders());
+
+        if (entry != null && !requestDirectives.containsKey("no-cache")) {
+            long age = entry.age(clock.millis());
+            if (age < entry.freshnessMillis()) {
+                hits.increment();
+                return entry.toResponse();
+            }
+            if (age < entry.freshnessMillis() + entry.staleWhileRevalidateMillis()) {
+                if (revalidationFactory != null) {
+                    hits.increment();
+                    revalidateInBackground(key, request, entry, generation);
+                    return entry.toResponse();
+                }
+                log.debug("revalidate synchronously within stale-while-revalidate (no revalidationFactory). uri={}",
+                        request.getURI());
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return store(key, request, execution.execute(request, body), generation);
+        }
+
+        ClientHttpResponse response = execution.execute(conditional(request, entry), body);
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            revalidations.increment();
+            response.close();
+            return refresh(key, entry, response.getHeaders(), generation).toResponse();
+        }
+        return store(key, request, response, generation);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    public long getCurrentBytes() {
+        lock.lock();
+        try {
+            return currentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ----------------------------------------------------- store operations
+
+    private Entry lookup(Key key, HttpHeaders requestHeaders) {
+        lock.lock();
+        try {
+            Entry entry = store.get(key);
+            return entry != null && entry.matchesVary(requestHeaders) ? entry : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long currentGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // generationはリクエストを始めた時点の値。その後に無効化があった場合は保存しない
+    private void put(Key key, Entry entry, long generation) {
+        lock.lock();
+        try {
+            if (this.generation != generation) {
+                return;
+            }
+            Entry old = store.put(key, entry);
+            if (old != null) {
+                currentBytes -= old.size();
+            }
+            currentBytes += entry.size();
+
+            Iterator<Entry> eldest = store.values().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                currentBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidateAfterWrite(URI uri, HttpHeaders responseHeaders) {
+
+        List<Predicate<URI>> targets = new ArrayList<>();
+        targets.add(scope(uri));
+        for (String name : List.of(HttpHeaders.LOCATION, HttpHeaders.CONTENT_LOCATION)) {
+            String location = responseHeaders.getFirst(name);
+            if (location != null) {
+                try {
+                    targets.add(scope(uri.resolve(location)));
+                } catch (IllegalArgumentException e) {
+                    log.debug("ignore invalid {} =>{}", name, location);
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            generation++;
+            Iterator<Map.Entry<Key, Entry>> entries = store.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Key, Entry> entry = entries.next();
+                URI cached = entry.getKey().uri();
+                if (targets.stream().anyMatch(target -> target.test(cached))) {
+                    currentBytes -= entry.getValue().size();
+                    entries.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // コレクション配下のURIならコレクション配下のすべて(クエリー違いも含む)、それ以外は同じURIだけを無効化の対象にする
+    private Predicate<URI> scope(URI written) {
+        String path = written.getRawPath();
+        for (String collection : collections) {
+            if (isUnder(path, collection)) {
+                return cached -> sameOrigin(cached, written) && isUnder(cached.getRawPath(), collection);
+            }
+        }
+        return cached -> cached.equals(written);
+    }
+
+    private static boolean isUnder(String path, String collection) {
+        return path != null && (path.equals(collection) || path.startsWith(collection + "/"));
+    }
+
+    private static boolean sameOrigin(URI uri, URI other) {
+        return Objects.equals(uri.getScheme(), other.getScheme())
+                && Objects.equals(uri.getRawAuthority(), other.getRawAuthority());
+    }
+
+    // 他のスレッドが既に置き換えていた場合は何もしない
+    private void invalidate(Key key, Entry entry) {
+        lock.lock();
+        try {
+            if (store.get(key) == entry) {
+                store.remove(key);
+                currentBytes -= entry.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ClientHttpResponse store(Key key, HttpRequest request, ClientHttpResponse response, long generation)
+            throws IOException {
+
+        HttpHeaders headers = response.getHeaders();
+        Map<String, String> responseDirectives = directives(headers);
+
+        boolean storable = response.getStatusCode().value() == HttpStatus.OK.value()
+                && !responseDirectives.containsKey("no-store")
+                && !headers.getVary().contains("*")
+                && (freshness(headers, responseDirectives) > 0
+                        || headers.getETag() != null
+                        || headers.getLastModified() >= 0);
+
+        long contentLength = headers.getContentLength();
+        if (!storable || contentLength > maxEntryBytes) {
+            return response;
+        }
+
+        // サイズ不明のボディは上限+1バイトまでだけ読み、超えたらキャッシュせずに読んだ分と残りを繋いで返す
+        InputStream in = response.getBody();
+        byte[] body = in.readNBytes((int) Math.min(maxEntryBytes + 1, Integer.MAX_VALUE));
+        if (body.length > maxEntryBytes) {
+            return new CachedResponse(response.getStatusCode(), headers,
+                    new SequenceInputStream(new ByteArrayInputStream(body), in), response);
+        }
+        response.close();
+
+        Entry entry = Entry.of(request.getHeaders(), headers, body, clock.millis());
+        put(key, entry, generation);
+        return entry.toResponse();
+    }
+
+    private Entry refresh(Key key, Entry entry, HttpHeaders notModifiedHeaders, long generation) {
+        // 304で受け取ったヘッダーで保存済みのヘッダーを更新する(RFC 9111 4.3.4)
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(entry.headers());
+        notModifiedHeaders.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                merged.put(name, values);
+            }
+        });
+        Entry refreshed = new Entry(HttpHeaders.readOnlyHttpHeaders(merged), entry.body(), entry.varyValues(), clock.millis(), ageOf(merged),
+                freshness(merged, directives(merged)), new AtomicBoolean());
+        put(key, refreshed, generation);
+        return refreshed;
+    }
+
+    private void revalidateInBackground(Key key, HttpRequest request, Entry entry, long generation) {
+
+        if (!entry.revalidating().compareAndSet(false, true)) {
+            return; // 既に誰かが再検証中
+        }
+
+        HttpRequest conditional = conditional(request, entry);
+        Thread.ofVirtual().start(() -> {
+            try {
+                ClientHttpRequest revalidation = revalidationFactory.createRequest(
+                        conditional.getURI(), conditional.getMethod());
+                revalidation.getHeaders().putAll(conditional.getHeaders());
+                try (ClientHttpResponse response = revalidation.execute()) {
+                    if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        revalidations.increment();
+                        refresh(key, entry, response.getHeaders(), generation);
+                    } else if (!response.getStatusCode().is5xxServerError()) {
+                        // 新しいレスポンスがno-storeや上限超えでキャッシュされない場合に古いエントリーを返し続けないよう、
+                        // 先に外してから保存する
+                        invalidate(key, entry);
+                        store(key, request, response, generation).close();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("background revalidation failed. uri=" + request.getURI(), e);
+            } finally {
+                // エントリーが置き換わらなかった場合も次のリクエストで再び再検証できるようにする
+                entry.revalidating().set(false);
+            }
+        });
+    }
+
+    // ----------------------------------------------------- helper methods
+
+    private static HttpRequest conditional(HttpRequest request, Entry entry) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        if (entry.headers().getETag() != null) {
+            headers.setIfNoneMatch(entry.headers().getETag());
+        }
+        if (entry.headers().getLastModified() >= 0) {
+            headers.setIfModifiedSince(entry.headers().getLastModified());
+        }
+
+        return new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    private static Map<String, String> directives(HttpHeaders headers) {
+        Map<String, String> directives = new HashMap<>();
+        for (String value : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+            int eq = value.indexOf('=');
+            String name = (eq < 0 ? value : value.substring(0, eq)).trim().toLowerCase(Locale.ROOT);
+            String arg = eq < 0 ? "" : value.substring(eq + 1).trim().replace("\"", "");
+            directives.put(name, arg);
+        }
+        return directives;
+    }
+
+    private static long freshness(HttpHeaders headers, Map<String, String> directives) {
+        if (directives.containsKey("no-cache")) {
+            return 0;
+        }
+        if (directives.containsKey("max-age")) {
+            return seconds(directives.get("max-age")) * 1000;
+        }
+        long expires = headers.getExpires();
+        long date = headers.getDate();
+        if (expires >= 0 && date >= 0) {
+            return Math.max(0, expires - date);
+        }
+        return 0; // ヒューリスティックな鮮度は使わず、検証子があれば毎回再検証する
+    }
+
+    private static long ageOf(HttpHeaders headers) {
+        String age = headers.getFirst(HttpHeaders.AGE);
+        return age == null ? 0 : seconds(age) * 1000;
+    }
+
+    private static long seconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // インスタンスは利用者をまたいで共有されるため、URIだけでなく利用者のコンテキスト(User-ID/Roles)ごとに分けて保存する。
+    // 利用者ごとに内容が変わるレスポンスを別の利用者に返さないようにするため
+    private record Key(URI uri, String userId, String roles) {
+        static Key of(HttpRequest request) {
+            HttpHeaders headers = request.getHeaders();
+            return new Key(request.getURI(), headers.getFirst(PropagateUserContextInitializer.USER_ID),
+                    headers.getFirst(PropagateUserContextInitializer.ROLES));
+        }
+    }
+
+    private record Entry(
+            HttpHeaders headers,
+            byte[] body,
+            Map<String, List<String>> varyValues,
+            long storedAtMillis,
+            long initialAgeMillis,
+            long freshnessMillis,
+            AtomicBoolean revalidating) {
+
+        static Entry of(HttpHeaders requestHeaders, HttpHeaders responseHeaders, byte[] body, long now) {
+
+            HttpHeaders copy = new HttpHeaders();
+            copy.putAll(responseHeaders);
+            HttpHeaders headers = HttpHeaders.readOnlyHttpHeaders(copy);
+
+            // Varyで指定されたリクエストヘッダーの値を覚えておき、一致した場合だけ再利用する
+            Map<String, List<String>> varyValues = new HashMap<>();
+            for (String name : headers.getVary()) {
+                varyValues.put(name, requestHeaders.getOrEmpty(name));
+            }
+
+            return new Entry(headers, body, varyValues, now, ageOf(headers),
+                    freshness(headers, directives(headers)), new AtomicBoolean());
+        }
+
+        long age(long now) {
+            return initialAgeMillis + Math.max(0, now - storedAtMillis);
+        }
+
+        long staleWhileRevalidateMillis() {
+            Map<String, String> directives = directives(headers);
+            if (directives.containsKey("must-revalidate") || directives.containsKey("no-cache")) {
+                return 0;
+            }
+            return seconds(directives.getOrDefault("stale-while-revalidate", "0")) * 1000;
+        }
+
+        boolean matchesVary(HttpHeaders requestHeaders) {
+            return varyValues.entrySet().stream()
+                    .allMatch(vary -> Objects.equals(vary.getValue(), requestHeaders.getOrEmpty(vary.getKey())));
+        }
+
+        long size() {
+            // ヘッダーの大きさは概算で見積もる
+            return body.length + headers.toString().length();
+        }
+
+        ClientHttpResponse toResponse() {
+            return new CachedResponse(HttpStatus.OK, headers, new ByteArrayInputStream(body), null);
+        }
+    }
+
+    private record CachedResponse(
+            HttpStatusCode statusCode,
+            HttpHeaders headers,
+            InputStream body,
+            ClientHttpResponse original) implements ClientHttpResponse {
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return original != null ? original.getStatusText() : HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (original != null) {
+                original.close();
+            }
+        }
+    }
+}
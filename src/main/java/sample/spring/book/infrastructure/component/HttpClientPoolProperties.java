@@ -0,0 +1,33 @@
+package sample.spring.book.infrastructure.component;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import lombok.Data;
+
+// PooledHttpComponentsFactoryで組み立てるコネクションプールの設定値。
+// HttpClientのデフォルト(ルート毎5本/全体25本)は仮想スレッドで並行に呼び出すと
+// すぐにリース待ちになるため、既定値は大きめにしている
+@Data
+public class HttpClientPoolProperties {
+
+    public static final String PREFIX = "book.client.pool";
+
+    private int maxTotal = 200;                                  // プール全体の最大接続数
+    private int maxPerRoute = 100;                               // 接続先(ルート)毎の最大接続数
+    private Duration connectTimeout = Duration.ofSeconds(5);     // 接続タイムアウト
+    private Duration responseTimeout = Duration.ofSeconds(30);   // 読み取りタイムアウト
+    private Duration leaseTimeout = Duration.ofSeconds(3);       // プールから接続を借りるまでの待ち時間の上限
+    private Duration evictIdle = Duration.ofSeconds(30);         // この時間使われなかった接続をバックグラウンドで閉じる
+    private Duration timeToLive = Duration.ofMinutes(5);         // 接続の最大寿命(DNSの切替えなどに追従させる)
+    private Duration validateAfterInactivity = Duration.ofSeconds(2); // この時間使われなかった接続は再利用前に検査する
+
+    // book.client.pool.*の設定をバインドする。設定がなければ既定値を使う
+    public static HttpClientPoolProperties from(Environment env) {
+        return Binder.get(env)
+                .bind(PREFIX, HttpClientPoolProperties.class)
+                .orElseGet(HttpClientPoolProperties::new);
+    }
+}
@@ -0,0 +1,49 @@
+package sample.spring.book.infrastructure.component;
+
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+
+// 1回のリクエスト/レスポンスのログ内容。ボディは先頭の一部(テキストの場合のみ)とバイト数だけを持つ。
+// statusは通信エラーの場合は-1で、exceptionに例外名が入る
+public record HttpLogRecord(
+        String method,
+        URI uri,
+        HttpHeaders requestHeaders,
+        String requestBody,
+        long requestBytes,
+        boolean requestTruncated,
+        int status,
+        HttpHeaders responseHeaders,
+        String responseBody,
+        long responseBytes,
+        boolean responseTruncated,
+        long elapsedMillis,
+        String exception) {
+
+    public String format() {
+        StringBuilder sb = new StringBuilder()
+                .append(method).append(' ').append(uri)
+                .append(" -> ").append(status < 0 ? exception : String.valueOf(status))
+                .append(" (").append(elapsedMillis).append(" ms)")
+                .append(System.lineSeparator()).append("Request Headers: ").append(requestHeaders);
+        appendBody(sb, "Request", requestBody, requestBytes, requestTruncated);
+        if (responseHeaders != null) {
+            sb.append(System.lineSeparator()).append("Response Headers: ").append(responseHeaders);
+            appendBody(sb, "Response", responseBody, responseBytes, responseTruncated);
+        }
+        return sb.toString();
+    }
+
+    private static void appendBody(StringBuilder sb, String label, String body, long bytes, boolean truncated) {
+        if (bytes == 0) {
+            return;
+        }
+        sb.append(System.lineSeparator()).append(label).append(" Body (").append(bytes).append(" bytes): ");
+        if (body == null) {
+            sb.append("[not logged]");
+        } else {
+            sb.append(body).append(truncated ? "...(truncated)" : "");
+        }
+    }
+}
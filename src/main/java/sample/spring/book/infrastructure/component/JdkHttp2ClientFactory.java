@@ -0,0 +1,48 @@
+package sample.spring.book.infrastructure.component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+// JDK HttpClientでHTTP/2を使うJdkClientHttpRequestFactoryを組み立てる。
+// HTTP/2は1本の接続に複数のリクエストを多重化するため、仮想スレッドで数千件を並行に呼び出しても
+// HTTP/1.1のプールのように実行中のリクエスト数だけ接続を張る必要がない。
+// 平文(http)の場合は最初のリクエストでh2cへのUpgradeを試み、サーバーが応じなければHTTP/1.1のまま通信する
+public class JdkHttp2ClientFactory {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final Executor executor;
+    private final Duration readTimeout;
+
+    public JdkHttp2ClientFactory() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // executorはHttpClient内部の非同期処理とリクエストボディの書き込みの両方で共有する
+    public JdkHttp2ClientFactory(Duration connectTimeout, Duration readTimeout, Executor executor) {
+        this.executor = executor;
+        this.readTimeout = readTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+    }
+
+    // 何度呼び出しても同じHttpClient(=同じ接続)を使う
+    public JdkClientHttpRequestFactory create() {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, executor);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+}
@@ -0,0 +1,178 @@
+package sample.spring.book.infrastructure.component;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+// LocalDateと文字列の相互変換。yyyy.MM.ddのように年4桁・月2桁・日2桁と区切り文字だけからなる固定幅の
+// パターンは、DateTimeFormatterを介さずに数字を直接読み書きする。それ以外のパターンや、固定幅に
+// 収まらない値(5桁以上の年など)はDateTimeFormatterで変換するため、結果と例外はofPatternの場合と変わらない
+public class LocalDateCodec {
+
+    private static final byte LITERAL = 0;
+    private static final byte YEAR = 1;
+    private static final byte MONTH = 2;
+    private static final byte DAY = 3;
+
+    private final DateTimeFormatter formatter;
+
+    // 固定幅の場合の雛形(区切り文字はそのまま)と各文字の種類。固定幅でなければnull
+    private final char[] template;
+    private final byte[] fields;
+    private final int yearIndex;
+    private final int monthIndex;
+    private final int dayIndex;
+    // yyyy(年号付きの年)は0年を受け付けない。uuuuは受け付ける
+    private final int minYear;
+
+    private LocalDateCodec(DateTimeFormatter formatter, char[] template, byte[] fields, int yearIndex,
+            int monthIndex, int dayIndex, int minYear) {
+        this.formatter = formatter;
+        this.template = template;
+        this.fields = fields;
+        this.yearIndex = yearIndex;
+        this.monthIndex = monthIndex;
+        this.dayIndex = dayIndex;
+        this.minYear = minYear;
+    }
+
+    public static LocalDateCodec of(String pattern) {
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+        LocalDateCodec fallback = new LocalDateCodec(formatter, null, null, -1, -1, -1, 1);
+
+        char[] template = pattern.toCharArray();
+        byte[] fields = new byte[template.length];
+        int year = -1, month = -1, day = -1, minYear = 1;
+
+        for (int i = 0; i < template.length;) {
+            char c = template[i];
+            int run = 1;
+            while (i + run < template.length && template[i + run] == c) {
+                run++;
+            }
+            if ((c == 'y' || c == 'u') && run == 4 && year < 0) {
+                year = i;
+                minYear = c == 'u' ? 0 : 1;
+                Arrays.fill(fields, i, i + run, YEAR);
+            } else if (c == 'M' && run == 2 && month < 0) {
+                month = i;
+                Arrays.fill(fields, i, i + run, MONTH);
+            } else if (c == 'd' && run == 2 && day < 0) {
+                day = i;
+                Arrays.fill(fields, i, i + run, DAY);
+            } else if (Character.isLetter(c) || "'[]{}#".indexOf(c) >= 0) {
+                // 上記以外の書式記号や予約文字を含むパターンはDateTimeFormatterに任せる
+                return fallback;
+            }
+            i += run;
+        }
+        if (year < 0 || month < 0 || day < 0) {
+            return fallback;
+        }
+        return new LocalDateCodec(formatter, template, fields, year, month, day, minYear);
+    }
+
+    public boolean isFixedWidth() {
+        return template != null;
+    }
+
+    // 固定幅の場合の文字数
+    public int getWidth() {
+        return template != null ? template.length : -1;
+    }
+
+    public LocalDate parse(CharSequence text) {
+        if (template != null && text.length() == template.length) {
+            int year = 0, month = 0, day = 0;
+            boolean matched = true;
+            for (int i = 0; i < template.length && matched; i++) {
+                char c = text.charAt(i);
+                switch (fields[i]) {
+                    case YEAR -> year = year * 10 + digit(c);
+                    case MONTH -> month = month * 10 + digit(c);
+                    case DAY -> day = day * 10 + digit(c);
+                    default -> matched = c == template[i];
+                }
+            }
+            LocalDate date = matched ? toDate(year, month, day) : null;
+            if (date != null) {
+                return date;
+            }
+        }
+        return LocalDate.parse(text, formatter);
+    }
+
+    // JsonParser#getTextCharactersのバッファから文字列を作らずに読む
+    public LocalDate parse(char[] text, int offset, int length) {
+        if (template != null && length == template.length) {
+            int year = 0, month = 0, day = 0;
+            boolean matched = true;
+            for (int i = 0; i < template.length && matched; i++) {
+                char c = text[offset + i];
+                switch (fields[i]) {
+                    case YEAR -> year = year * 10 + digit(c);
+                    case MONTH -> month = month * 10 + digit(c);
+                    case DAY -> day = day * 10 + digit(c);
+                    default -> matched = c == template[i];
+                }
+            }
+            LocalDate date = matched ? toDate(year, month, day) : null;
+            if (date != null) {
+                return date;
+            }
+        }
+        return LocalDate.parse(new String(text, offset, length), formatter);
+    }
+
+    public String format(LocalDate date) {
+        if (template != null && fits(date)) {
+            char[] chars = new char[template.length];
+            format(date, chars, 0);
+            return new String(chars);
+        }
+        return date.format(formatter);
+    }
+
+    // 固定幅の場合だけdestのoffsetからgetWidth()文字を書き込んでtrueを返す
+    public boolean format(LocalDate date, char[] dest, int offset) {
+        if (template == null || !fits(date)) {
+            return false;
+        }
+        System.arraycopy(template, 0, dest, offset, template.length);
+        int year = date.getYear();
+        dest[offset + yearIndex] = (char) ('0' + year / 1000);
+        dest[offset + yearIndex + 1] = (char) ('0' + year / 100 % 10);
+        dest[offset + yearIndex + 2] = (char) ('0' + year / 10 % 10);
+        dest[offset + yearIndex + 3] = (char) ('0' + year % 10);
+        write2(date.getMonthValue(), dest, offset + monthIndex);
+        write2(date.getDayOfMonth(), dest, offset + dayIndex);
+        return true;
+    }
+
+    private boolean fits(LocalDate date) {
+        return date.getYear() >= minYear && date.getYear() <= 9999;
+    }
+
+    // 数字でなければ負の大きな値にして範囲チェックで弾く
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -100_000;
+    }
+
+    // 範囲外の値の場合はnull(DateTimeFormatterに解析させて同じ例外を投げる)
+    private LocalDate toDate(int year, int month, int day) {
+        if (year < minYear || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        // DateTimeFormatter(ResolverStyle.SMART)と同じく、月末を超える日は月末に丸める
+        int lengthOfMonth = Month.of(month).length(Year.isLeap(year));
+        return LocalDate.of(year, month, Math.min(day, lengthOfMonth));
+    }
+
+    private static void write2(int value, char[] dest, int index) {
+        dest[index] = (char) ('0' + value / 10);
+        dest[index + 1] = (char) ('0' + value % 10);
+    }
+}
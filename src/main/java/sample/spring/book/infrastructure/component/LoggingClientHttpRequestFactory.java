@@ -1,89 +1,160 @@
 package sample.spring.book.infrastructure.component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpResponse;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-
-@RequiredArgsConstructor
+// リクエストとレスポンスをログに出すClientHttpRequestFactoryのデコレーター。
+// ボディは通信路に流れるストリームから先頭maxBodyBytesだけを写し取るため、全体をバッファしない。
+// ログはAsyncHttpLogAppenderが別スレッドで出力し、sampleRateで一部のリクエストだけを対象にできる
 public class LoggingClientHttpRequestFactory implements ClientHttpRequestFactory {
 
+    public static final int DEFAULT_MAX_BODY_BYTES = 4 * 1024;
+
     private final ClientHttpRequestFactory originalFactory;
+    private final AsyncHttpLogAppender appender;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+
+    public LoggingClientHttpRequestFactory(ClientHttpRequestFactory originalFactory) {
+        this(originalFactory, AsyncHttpLogAppender.getDefault(), 1.0, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    // sampleRateは0.0(出力しない)から1.0(すべて出力)。maxBodyBytesが0の場合はボディの内容を出さない
+    public LoggingClientHttpRequestFactory(ClientHttpRequestFactory originalFactory, AsyncHttpLogAppender appender,
+            double sampleRate, int maxBodyBytes) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1 =>" + sampleRate);
+        }
+        if (maxBodyBytes < 0) {
+            throw new IllegalArgumentException("maxBodyBytes must not be negative =>" + maxBodyBytes);
+        }
+        this.originalFactory = originalFactory;
+        this.appender = appender;
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+    }
 
     @Override
     public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
         ClientHttpRequest delegate = originalFactory.createRequest(uri, httpMethod);
+        // 対象外のリクエストはラップせず、ログのためのコストを一切かけない
+        if (!sampled()) {
+            return delegate;
+        }
         return new LoggingClientHttpRequest(delegate);
     }
 
+    private boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
 
-    @RequiredArgsConstructor
-    @Slf4j
-    static class LoggingClientHttpRequest implements ClientHttpRequest {
 
-        private final ClientHttpRequest delegate;
+    // StreamingHttpOutputMessageを引き継ぐため、ラップしてもボディはバッファされない
+    class LoggingClientHttpRequest extends DelegatingClientHttpRequest {
 
-        @Override
-        public HttpMethod getMethod() {
-            return delegate.getMethod();
-        }
+        private final BodyCapture requestBody = new BodyCapture(maxBodyBytes);
 
-        @Override
-        public URI getURI() {
-            return delegate.getURI();
+        LoggingClientHttpRequest(ClientHttpRequest delegate) {
+            super(delegate);
         }
 
         @Override
-        public HttpHeaders getHeaders() {
-            return delegate.getHeaders();
+        protected OutputStream decorateBody(OutputStream body) {
+            return requestBody.tee(body);
         }
 
         @Override
-        public OutputStream getBody() throws IOException {
-            return delegate.getBody();
+        public ClientHttpResponse execute() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return new LoggingClientHttpResponse(this, delegate.execute(), start);
+            } catch (IOException | RuntimeException e) {
+                appender.append(toRecord(start, -1, null, null, e));
+                throw e;
+            }
         }
 
-        @Override
-        public ClientHttpResponse execute() throws IOException {
-            logRequestHeaders(delegate);
-            ClientHttpResponse response = delegate.execute();
-            logResponseHeaders(response);
-            return response;
+        HttpLogRecord toRecord(long start, int status, HttpHeaders responseHeaders, BodyCapture responseBody,
+                Exception e) {
+            HttpHeaders headers = getHeaders();
+            return new HttpLogRecord(
+                    getMethod().name(),
+                    getURI(),
+                    HttpHeaders.readOnlyHttpHeaders(headers),
+                    requestBody.preview(headers.getContentType()),
+                    requestBody.getTotal(),
+                    requestBody.isTruncated(),
+                    status,
+                    responseHeaders,
+                    responseBody != null ? responseBody.preview(responseHeaders.getContentType()) : null,
+                    responseBody != null ? responseBody.getTotal() : 0,
+                    responseBody != null && responseBody.isTruncated(),
+                    (System.nanoTime() - start) / 1_000_000,
+                    e != null ? e.getClass().getSimpleName() : null);
         }
+    }
 
-        private void logRequestHeaders(HttpRequest request) {
+    // 呼び出し元が読んだ分だけを写し取り、closeの時点でリクエストと合わせた1件のログにする
+    class LoggingClientHttpResponse implements ClientHttpResponse {
 
-            // ClientHttpRequest#getBodyはメモリ効率とStreamの復元も含め慎重に行う必要があるため省略。
-            // 解決方法の1つとして通信路に実際に出力するOutputStreamのStreamをキャプチャしながらログ
-            // にも書く方法がある。
+        private final LoggingClientHttpRequest request;
+        private final ClientHttpResponse delegate;
+        private final long start;
+        private final BodyCapture responseBody = new BodyCapture(maxBodyBytes);
+        private InputStream body;
+        private boolean logged;
 
-            log.info("Request ================================================================");
-            log.info("Request URI: " + request.getURI());
-            log.info("Request Method: " + request.getMethod());
-            log.info("Request Headers: " + request.getHeaders());
-            log.info("Request ================================================================");
+        LoggingClientHttpResponse(LoggingClientHttpRequest request, ClientHttpResponse delegate, long start) {
+            this.request = request;
+            this.delegate = delegate;
+            this.start = start;
         }
 
-        private void logResponseHeaders(ClientHttpResponse response) throws IOException {
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
 
-            // LoggingInterceptorのClientHttpResponseと同じ理由でボディの出力は省略。
-            // 解決方法の1つとしてInputStream#markで開始位置をマークし制御を戻すに前にInputStream#resetで
-            // 進んだストリーム位置を戻す方法がある
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
 
-            log.info("Response ================================================================");
-            log.info("Response Status Code: " + response.getStatusCode());
-            log.info("Response Headers: " + response.getHeaders());
-            log.info("Response ================================================================");
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
 
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = responseBody.tee(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (!logged) {
+                logged = true;
+                try {
+                    appender.append(request.toRecord(start, delegate.getStatusCode().value(),
+                            HttpHeaders.readOnlyHttpHeaders(delegate.getHeaders()), responseBody, null));
+                } catch (IOException e) {
+                    appender.append(request.toRecord(start, -1, null, null, e));
+                }
+            }
+            delegate.close();
         }
     }
 }
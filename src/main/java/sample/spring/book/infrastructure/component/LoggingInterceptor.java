@@ -14,6 +14,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LoggingInterceptor implements ClientHttpRequestInterceptor {
 
+    private static final int MAX_BODY_BYTES = LoggingClientHttpRequestFactory.DEFAULT_MAX_BODY_BYTES;
+
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
             throws IOException {
@@ -30,8 +32,9 @@ public class LoggingInterceptor implements ClientHttpRequestInterceptor {
         return response;
     }
 
-    // ボディの内容はこのメソッド呼び出し時点ですべてバイト配列(文字列)化されてしまう
-    // 大きなボディはメモリが圧迫されるので注意が必要！
+    // ボディの内容はこのメソッド呼び出し時点ですべてバイト配列化されてしまう
+    // 大きなボディはメモリが圧迫されるので注意が必要！(ボディを流しながら先頭だけを出したい場合は
+    // LoggingClientHttpRequestFactoryを使う)
     private void logRequestDetails(HttpRequest request, byte[] body) {
 
         log.info("Request ================================================================");
@@ -40,8 +43,11 @@ public class LoggingInterceptor implements ClientHttpRequestInterceptor {
         log.info("Request Headers: " + request.getHeaders());
 
         // リクエストボディのログ出力
-        if (request.getHeaders().getContentType().equals(MediaType.MULTIPART_FORM_DATA) && body.length > 0) {
-            log.info("Request Body: " + new String(body, StandardCharsets.UTF_8));
+        // 文字列化するのは先頭MAX_BODY_BYTESまで
+        if (MediaType.MULTIPART_FORM_DATA.includes(request.getHeaders().getContentType()) && body.length > 0) {
+            int length = Math.min(body.length, MAX_BODY_BYTES);
+            log.info("Request Body: " + new String(body, 0, length, StandardCharsets.UTF_8)
+                    + (length < body.length ? "...(truncated)" : ""));
         }
         log.info("Request ================================================================");
     }
@@ -0,0 +1,73 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import sample.spring.book.infrastructure.component.ClientMetrics.CountingOutputStream;
+
+// MetricsInterceptorと同じメーターを記録するClientHttpRequestFactoryのデコレーター。
+// ボディをバッファしないため、ファイルのアップロードなどストリーミングで送るリクエストにも使える
+public class MetricsClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private final ClientHttpRequestFactory originalFactory;
+    private final ClientMetrics metrics;
+
+    public MetricsClientHttpRequestFactory(ClientHttpRequestFactory originalFactory, MeterRegistry registry) {
+        this(originalFactory, registry, MetricsInterceptor.BOOK_URI_TEMPLATES);
+    }
+
+    public MetricsClientHttpRequestFactory(ClientHttpRequestFactory originalFactory, MeterRegistry registry,
+            List<String> uriTemplates) {
+        this.originalFactory = originalFactory;
+        this.metrics = new ClientMetrics(registry, uriTemplates);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        return new MetricsClientHttpRequest(originalFactory.createRequest(uri, httpMethod));
+    }
+
+
+    private class MetricsClientHttpRequest extends DelegatingClientHttpRequest {
+
+        private CountingOutputStream body;
+
+        MetricsClientHttpRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        protected OutputStream decorateBody(OutputStream body) {
+            this.body = ClientMetrics.counting(body);
+            return this.body;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+
+            String uri = metrics.uriTemplate(getURI());
+            String method = getMethod().name();
+
+            long start = System.nanoTime();
+            try {
+                // ストリーミングの場合、ボディはexecuteの中で書き込まれる
+                ClientHttpResponse response = delegate.execute();
+                metrics.recordResponse(start, method, uri, response.getStatusCode());
+                return metrics.sizeRecording(response, method, uri);
+            } catch (IOException | RuntimeException e) {
+                metrics.recordError(start, method, uri, e);
+                throw e;
+            } finally {
+                metrics.recordRequestSize(method, uri, body != null ? body.getCount() : 0);
+            }
+        }
+    }
+}
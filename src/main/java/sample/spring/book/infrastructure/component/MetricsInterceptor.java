@@ -0,0 +1,66 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// リクエスト毎の処理時間(パーセンタイル用ヒストグラム付き)と送受信サイズをMicrometerに記録するインターセプター。
+// タグのuriには展開前のURIテンプレートを使い、カーディナリティが増えないようにする。
+// インターセプターはボディをbyte[]にバッファさせるため、大きなボディを送る場合はMetricsClientHttpRequestFactoryを使う
+public class MetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    public static final String REQUESTS = "book.client.requests";
+    public static final String REQUEST_SIZE = "book.client.request.size";
+    public static final String RESPONSE_SIZE = "book.client.response.size";
+
+    // BookClientApiのエンドポイント
+    public static final List<String> BOOK_URI_TEMPLATES = List.of(
+            "/books",
+            "/books/search",
+            "/books/author",
+            "/books/upload",
+            "/books/uploads",
+            "/books/localdate",
+            "/books/bad-response",
+            "/books/{id}",
+            "/books/files/{filename}",
+            "/books/localdate/{localdate}",
+            "/books/uploads/{uploadId}/complete",
+            "/books/uploads/{uploadId}/chunks/{offset}");
+
+    private final ClientMetrics metrics;
+
+    public MetricsInterceptor(MeterRegistry registry) {
+        this(registry, BOOK_URI_TEMPLATES);
+    }
+
+    public MetricsInterceptor(MeterRegistry registry, List<String> uriTemplates) {
+        this.metrics = new ClientMetrics(registry, uriTemplates);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+
+        String uri = metrics.uriTemplate(request.getURI());
+        String method = request.getMethod().name();
+
+        metrics.recordRequestSize(method, uri, body.length);
+
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            metrics.recordResponse(start, method, uri, response.getStatusCode());
+            return metrics.sizeRecording(response, method, uri);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(start, method, uri, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package sample.spring.book.infrastructure.component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+// HttpClientPoolPropertiesからコネクションプール付きのHttpComponentsClientHttpRequestFactoryを組み立てる。
+// MeterRegistryを渡した場合はプールの状態(leased/available/pending)とリース待ち時間を記録する
+public class PooledHttpComponentsFactory {
+
+    public static final String LEASE = "book.client.pool.lease";
+
+    private final HttpClientPoolProperties properties;
+    private final MeterRegistry registry;
+    private final String poolName;
+
+    public PooledHttpComponentsFactory(HttpClientPoolProperties properties) {
+        this(properties, null, "book");
+    }
+
+    public PooledHttpComponentsFactory(HttpClientPoolProperties properties, MeterRegistry registry, String poolName) {
+        this.properties = properties;
+        this.registry = registry;
+        this.poolName = poolName;
+    }
+
+    // 返したファクトリはDisposableBeanなので、Bean以外で使う場合はdestroyでプールを閉じること
+    public HttpComponentsClientHttpRequestFactory create() {
+
+        PoolingHttpClientConnectionManager connectionManager = registry != null
+                ? new LeaseTimingConnectionManager(leaseTimer())
+                : new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(timeout(properties.getConnectTimeout()))
+                .setTimeToLive(timeValue(properties.getTimeToLive()))
+                .setValidateAfterInactivity(timeValue(properties.getValidateAfterInactivity()))
+                .build());
+
+        if (registry != null) {
+            new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, poolName).bindTo(registry);
+        }
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setResponseTimeout(timeout(properties.getResponseTimeout()))
+                .setConnectionRequestTimeout(timeout(properties.getLeaseTimeout()))
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(timeValue(properties.getEvictIdle()))
+                .build();
+
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private Timer leaseTimer() {
+        return Timer.builder(LEASE)
+                .description("Time spent waiting for a pooled connection")
+                .tag("pool", poolName)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue timeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+
+    // プールが飽和している時間を見るため、リース要求から接続を得るまで(タイムアウト含む)を計測する
+    static class LeaseTimingConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer leaseTimer;
+
+        LeaseTimingConnectionManager(Timer leaseTimer) {
+            this.leaseTimer = leaseTimer;
+        }
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+
+            LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return delegate.get(timeout);
+                    } finally {
+                        leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return delegate.cancel();
+                }
+            };
+        }
+    }
+}
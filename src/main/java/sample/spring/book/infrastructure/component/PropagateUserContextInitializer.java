@@ -1,29 +1,21 @@
-package sample.spring.book.infrastructure.component;
-
-import java.util.stream.Collectors;
-
-import org.springframework.http.client.ClientHttpRequest;
-import org.springframework.http.client.ClientHttpRequestInitializer;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
-
-public class PropagateUserContextInitializer implements ClientHttpRequestInitializer {
-
-    @Override
-    public void initialize(ClientHttpRequest request) {
-
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-
-        if (auth != null && auth.isAuthenticated()) {
-
-            String userId = String.valueOf(auth.getPrincipal());
-            String roles = auth.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .collect(Collectors.joining(","));
-
-            request.getHeaders().add("User-ID", userId);
-            request.getHeaders().add("Roles", roles);
-        }
-    }
-}
+package sample.spring.book.infrastructure.component;
+
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestInitializer;
+
+public class PropagateUserContextInitializer implements ClientHttpRequestInitializer {
+
+    public static final String USER_ID = "User-ID";
+    public static final String ROLES = "Roles";
+
+    @Override
+    public void initialize(ClientHttpRequest request) {
+
+        Caller caller = Caller.current();
+
+        if (caller.isAuthenticated()) {
+            request.getHeaders().add(USER_ID, caller.userId());
+            request.getHeaders().add(ROLES, caller.roles());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package sample.spring.book.infrastructure.component;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import sample.spring.book.exception.ErrorMessage;
+
+// BookResponseErrorHandlerと同じルールでエラーレスポンスを例外に変換するWebClient用のハンドラー。
+// WebClient.Builder#defaultStatusHandler(PREDICATE, new ReactiveBookResponseErrorHandler())で登録する
+@Slf4j
+public class ReactiveBookResponseErrorHandler implements Function<ClientResponse, Mono<? extends Throwable>> {
+
+    public static final Predicate<HttpStatusCode> PREDICATE = BookResponseErrorHandler::isHandled;
+
+    @Override
+    public Mono<? extends Throwable> apply(ClientResponse response) {
+        return response.bodyToMono(ErrorMessage.class)
+                .onErrorResume(e -> {
+                    log.warn(e.getMessage(), e);
+                    return Mono.just(new ErrorMessage(e.getMessage()));
+                })
+                .defaultIfEmpty(new ErrorMessage(response.statusCode().toString()))
+                .map(message -> BookResponseErrorHandler.toException(response.statusCode(), message));
+    }
+}
@@ -0,0 +1,61 @@
+package sample.spring.book.infrastructure.component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+// レスポンスボディを一時ファイルへ書き出し、そのPathを返す読み取り専用のコンバーター。
+// HTTPインターフェースはボディの変換後にレスポンスをcloseするため、InputStreamを返すことができない。
+// その代わりに変換の中でディスクへ逃がすことで、ボディ全体をヒープに載せずにダウンロードする
+public class TempFileHttpMessageConverter extends AbstractHttpMessageConverter<Path> {
+
+    private static final String PREFIX = "book-download-";
+
+    // nullの場合はjava.io.tmpdir
+    private final Path directory;
+
+    public TempFileHttpMessageConverter() {
+        this(null);
+    }
+
+    // 保存先と同じファイルシステムを指定すると、後続のFiles#moveがコピーではなくリネームで済む
+    public TempFileHttpMessageConverter(Path directory) {
+        super(MediaType.ALL);
+        this.directory = directory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Path.class == clazz;
+    }
+
+    @Override
+    protected Path readInternal(Class<? extends Path> clazz, HttpInputMessage inputMessage) throws IOException {
+        Path tempFile = directory != null
+                ? Files.createTempFile(directory, PREFIX, null)
+                : Files.createTempFile(PREFIX, null);
+        try {
+            FileTransfer.transfer(inputMessage.getBody(), tempFile);
+            return tempFile;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Path path, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("write is not supported");
+    }
+}
@@ -1,20 +1,21 @@
 package sample.spring.book.infrastructure.component.converter;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 import org.springframework.core.convert.converter.Converter;
 
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+
 public class LocalDateToStringConverter implements Converter<LocalDate, String> {
 
-    private final DateTimeFormatter formatter;
+    private final LocalDateCodec codec;
 
     public LocalDateToStringConverter(String pattern) {
-        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.codec = LocalDateCodec.of(pattern);
     }
 
     @Override
     public String convert(LocalDate source) {
-        return source.format(formatter);
+        return codec.format(source);
     }
 }
@@ -1,20 +1,21 @@
 package sample.spring.book.infrastructure.component.converter;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 import org.springframework.core.convert.converter.Converter;
 
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+
 public class StringToLocalDateConverter implements Converter<String, LocalDate> {
 
-    private final DateTimeFormatter formatter;
+    private final LocalDateCodec codec;
 
     public StringToLocalDateConverter(String pattern) {
-        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.codec = LocalDateCodec.of(pattern);
     }
 
     @Override
     public LocalDate convert(String source) {
-        return LocalDate.parse(source, formatter);
+        return codec.parse(source);
     }
 }
@@ -0,0 +1,19 @@
+package sample.spring.book.infrastructure.component.jackson;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Bookをレスポンスから直接生成するためのMix-in(ドメインクラスにJacksonのアノテーションを持ち込まない)。
+// BookResponseを経由しないため、一覧取得で要素毎の中間オブジェクトとコピーが不要になる
+abstract class BookMixIn {
+
+    @JsonCreator
+    BookMixIn(
+            @JsonProperty("id") Integer id,
+            @JsonProperty("title") String title,
+            @JsonProperty("author") String author,
+            @JsonProperty("published") LocalDate published) {
+    }
+}
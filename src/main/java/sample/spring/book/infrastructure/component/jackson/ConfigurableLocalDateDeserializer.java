@@ -2,22 +2,28 @@ package sample.spring.book.infrastructure.component.jackson;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+
 public class ConfigurableLocalDateDeserializer extends JsonDeserializer<LocalDate> {
 
-    private final DateTimeFormatter formatter;
+    private final LocalDateCodec codec;
 
     public ConfigurableLocalDateDeserializer(String pattern) {
-        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.codec = LocalDateCodec.of(pattern);
     }
 
     @Override
     public LocalDate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-        return LocalDate.parse(p.getValueAsString(), formatter);
+        // 文字列の値はパーサーの文字バッファから直接読む(Stringを作らない)
+        if (p.hasToken(JsonToken.VALUE_STRING)) {
+            return codec.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        return codec.parse(p.getValueAsString());
     }
 }
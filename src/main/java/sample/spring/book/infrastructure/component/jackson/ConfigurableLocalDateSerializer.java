@@ -2,22 +2,31 @@ package sample.spring.book.infrastructure.component.jackson;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+
 public class ConfigurableLocalDateSerializer extends JsonSerializer<LocalDate> {
 
-    private final DateTimeFormatter formatter;
+    private final LocalDateCodec codec;
 
     public ConfigurableLocalDateSerializer(String pattern) {
-        this.formatter = DateTimeFormatter.ofPattern(pattern);
+        this.codec = LocalDateCodec.of(pattern);
     }
 
     @Override
     public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-        gen.writeString(value.format(formatter));
+        // 固定幅のパターンは数字を文字配列に書いてそのまま渡す(Stringを作らない)
+        if (codec.isFixedWidth()) {
+            char[] chars = new char[codec.getWidth()];
+            if (codec.format(value, chars, 0)) {
+                gen.writeString(chars, 0, chars.length);
+                return;
+            }
+        }
+        gen.writeString(codec.format(value));
     }
 }
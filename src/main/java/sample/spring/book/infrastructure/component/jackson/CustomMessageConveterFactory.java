@@ -1,17 +1,41 @@
 package sample.spring.book.infrastructure.component.jackson;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import sample.spring.book.domain.Book;
 
 public class CustomMessageConveterFactory {
 
     public MappingJackson2HttpMessageConverter create(String pattern) {
+        return new MappingJackson2HttpMessageConverter(createObjectMapper(pattern));
+    }
+
+    public MappingJackson2CborHttpMessageConverter createCbor(String pattern) {
+        return new MappingJackson2CborHttpMessageConverter(configure(new CBORMapper(), pattern));
+    }
+
+    // CBOR、JSONの順に並べたコンバーター。Acceptを組み立てる際にCBORを優先し、
+    // CBORに対応していないサーバーからはJSONで受け取る。
+    // Content-Typeを指定せずに送信するとボディも先頭のCBORで書かれるため、送信時はJSONを明示すること
+    public List<HttpMessageConverter<?>> createConverters(String pattern) {
+        return List.of(createCbor(pattern), create(pattern));
+    }
+
+    // WebClientのJackson2JsonEncoder/Decoderなどコンバーター以外からも同じ設定を使えるようにする
+    public ObjectMapper createObjectMapper(String pattern) {
+        return configure(new ObjectMapper(), pattern);
+    }
 
-        ObjectMapper mapper = new ObjectMapper();
+    private <T extends ObjectMapper> T configure(T mapper, String pattern) {
 
         SimpleModule module = new SimpleModule();
 
@@ -19,7 +43,9 @@ public class CustomMessageConveterFactory {
         module.addDeserializer(LocalDate.class, new ConfigurableLocalDateDeserializer(pattern));
 
         mapper.registerModule(module);
+        mapper.registerModule(new DtoCodecModule(pattern));
+        mapper.addMixIn(Book.class, BookMixIn.class);
 
-        return new MappingJackson2HttpMessageConverter(mapper);
+        return mapper;
     }
 }
@@ -0,0 +1,304 @@
+package sample.spring.book.infrastructure.component.jackson;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import sample.spring.book.exception.ErrorMessage;
+import sample.spring.book.infrastructure.AddRequest;
+import sample.spring.book.infrastructure.BookResponse;
+import sample.spring.book.infrastructure.UpdateRequest;
+
+// DTOのレコードをJsonParser/JsonGeneratorで直接読み書きするモジュール。
+// databindのBeanSerializer/BeanDeserializer(プロパティ毎のアクセサー呼び出しや引数のバッファリング)を通らない。
+// アノテーションプロセッサーで生成せず、対象が4つの小さなレコードに限られるため手で書いている
+// (ビルドに生成の段階を増やさないため)。レコードの項目を変えた場合はここも合わせて変えること。
+// DtoCodecModuleTestでdatabindの結果とバイト単位で比べているため、変え忘れはテストで検出される。
+// モジュールやシリアライザーを直列化して使うことはないため、直列化できない日付の書式(LocalDateFields)はtransientにしている
+public final class DtoCodecModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString AUTHOR = new SerializedString("author");
+    private static final SerializedString PUBLISHED = new SerializedString("published");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    public DtoCodecModule(String pattern) {
+        super(DtoCodecModule.class.getSimpleName());
+
+        LocalDateFields dates = new LocalDateFields(
+                new ConfigurableLocalDateSerializer(pattern), new ConfigurableLocalDateDeserializer(pattern));
+
+        addSerializer(BookResponse.class, new BookResponseSerializer(dates));
+        addDeserializer(BookResponse.class, new BookResponseDeserializer(dates));
+        addSerializer(AddRequest.class, new AddRequestSerializer(dates));
+        addDeserializer(AddRequest.class, new AddRequestDeserializer(dates));
+        addSerializer(UpdateRequest.class, new UpdateRequestSerializer(dates));
+        addDeserializer(UpdateRequest.class, new UpdateRequestDeserializer(dates));
+        addSerializer(ErrorMessage.class, new ErrorMessageSerializer());
+        addDeserializer(ErrorMessage.class, new ErrorMessageDeserializer());
+    }
+
+    // --- BookResponse
+
+    private static class BookResponseSerializer extends StdSerializer<BookResponse> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        BookResponseSerializer(LocalDateFields dates) {
+            super(BookResponse.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public void serialize(BookResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName(ID);
+            gen.writeNumber(value.id());
+            gen.writeFieldName(TITLE);
+            gen.writeString(value.title());
+            gen.writeFieldName(AUTHOR);
+            gen.writeString(value.author());
+            gen.writeFieldName(PUBLISHED);
+            dates.write(value.published(), gen, provider);
+            gen.writeEndObject();
+        }
+    }
+
+    private static class BookResponseDeserializer extends StdDeserializer<BookResponse> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        BookResponseDeserializer(LocalDateFields dates) {
+            super(BookResponse.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public BookResponse deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            int id = 0;
+            String title = null;
+            String author = null;
+            LocalDate published = null;
+
+            for (String name = firstField(p, ctxt, this); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsInt();
+                    case "title" -> title = p.getValueAsString();
+                    case "author" -> author = p.getValueAsString();
+                    case "published" -> published = dates.read(p, ctxt);
+                    default -> ctxt.handleUnknownProperty(p, this, BookResponse.class, name);
+                }
+            }
+            return new BookResponse(id, title, author, published);
+        }
+    }
+
+    // --- AddRequest
+
+    private static class AddRequestSerializer extends StdSerializer<AddRequest> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        AddRequestSerializer(LocalDateFields dates) {
+            super(AddRequest.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public void serialize(AddRequest value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName(TITLE);
+            gen.writeString(value.title());
+            gen.writeFieldName(AUTHOR);
+            gen.writeString(value.author());
+            gen.writeFieldName(PUBLISHED);
+            dates.write(value.published(), gen, provider);
+            gen.writeEndObject();
+        }
+    }
+
+    private static class AddRequestDeserializer extends StdDeserializer<AddRequest> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        AddRequestDeserializer(LocalDateFields dates) {
+            super(AddRequest.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public AddRequest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String title = null;
+            String author = null;
+            LocalDate published = null;
+
+            for (String name = firstField(p, ctxt, this); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "title" -> title = p.getValueAsString();
+                    case "author" -> author = p.getValueAsString();
+                    case "published" -> published = dates.read(p, ctxt);
+                    default -> ctxt.handleUnknownProperty(p, this, AddRequest.class, name);
+                }
+            }
+            return new AddRequest(title, author, published);
+        }
+    }
+
+    // --- UpdateRequest
+
+    private static class UpdateRequestSerializer extends StdSerializer<UpdateRequest> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        UpdateRequestSerializer(LocalDateFields dates) {
+            super(UpdateRequest.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public void serialize(UpdateRequest value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName(ID);
+            gen.writeNumber(value.id());
+            gen.writeFieldName(TITLE);
+            gen.writeString(value.title());
+            gen.writeFieldName(AUTHOR);
+            gen.writeString(value.author());
+            gen.writeFieldName(PUBLISHED);
+            dates.write(value.published(), gen, provider);
+            gen.writeEndObject();
+        }
+    }
+
+    private static class UpdateRequestDeserializer extends StdDeserializer<UpdateRequest> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient LocalDateFields dates;
+
+        UpdateRequestDeserializer(LocalDateFields dates) {
+            super(UpdateRequest.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public UpdateRequest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            int id = 0;
+            String title = null;
+            String author = null;
+            LocalDate published = null;
+
+            for (String name = firstField(p, ctxt, this); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsInt();
+                    case "title" -> title = p.getValueAsString();
+                    case "author" -> author = p.getValueAsString();
+                    case "published" -> published = dates.read(p, ctxt);
+                    default -> ctxt.handleUnknownProperty(p, this, UpdateRequest.class, name);
+                }
+            }
+            return new UpdateRequest(id, title, author, published);
+        }
+    }
+
+    // --- ErrorMessage
+
+    private static class ErrorMessageSerializer extends StdSerializer<ErrorMessage> {
+
+        private static final long serialVersionUID = 1L;
+
+        ErrorMessageSerializer() {
+            super(ErrorMessage.class);
+        }
+
+        @Override
+        public void serialize(ErrorMessage value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName(MESSAGE);
+            gen.writeString(value.message());
+            gen.writeEndObject();
+        }
+    }
+
+    private static class ErrorMessageDeserializer extends StdDeserializer<ErrorMessage> {
+
+        private static final long serialVersionUID = 1L;
+
+        ErrorMessageDeserializer() {
+            super(ErrorMessage.class);
+        }
+
+        @Override
+        public ErrorMessage deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String message = null;
+
+            for (String name = firstField(p, ctxt, this); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "message" -> message = p.getValueAsString();
+                    default -> ctxt.handleUnknownProperty(p, this, ErrorMessage.class, name);
+                }
+            }
+            return new ErrorMessage(message);
+        }
+    }
+
+    // 最初のプロパティ名を返す。databindから呼ばれる時点のトークンはSTART_OBJECTかFIELD_NAME(バッファ済みの場合)
+    private static String firstField(JsonParser p, DeserializationContext ctxt, StdDeserializer<?> deserializer)
+            throws IOException {
+        if (p.isExpectedStartObjectToken()) {
+            return p.nextFieldName();
+        }
+        if (p.hasToken(JsonToken.FIELD_NAME)) {
+            return p.currentName();
+        }
+        if (p.hasToken(JsonToken.END_OBJECT)) {
+            return null;
+        }
+        ctxt.handleUnexpectedToken(deserializer.handledType(), p);
+        return null;
+    }
+
+    // LocalDateの項目は登録済みのシリアライザーと同じ書式で読み書きする(nullはそのままnull)
+    private record LocalDateFields(ConfigurableLocalDateSerializer serializer,
+            JsonDeserializer<LocalDate> deserializer) {
+
+        void write(LocalDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value == null) {
+                gen.writeNull();
+            } else {
+                serializer.serialize(value, gen, provider);
+            }
+        }
+
+        LocalDate read(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return p.hasToken(JsonToken.VALUE_NULL) ? null : deserializer.deserialize(p, ctxt);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package sample.spring.book.infrastructure.component.jackson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import sample.spring.book.domain.Book;
+
+// JSON配列のレスポンスをJacksonのトークンAPIで1要素ずつ読み出すStreamに変換する。
+// 配列全体をListに展開しないため、先頭の要素はボディを受信し終える前から処理できる
+@RequiredArgsConstructor
+public class JsonArrayStreamReader {
+
+    private final ObjectMapper mapper;
+
+    // 設定済みのメッセージコンバーターからObjectMapperを引き継ぐ(LocalDateの書式などを揃えるため)
+    public static JsonArrayStreamReader from(List<HttpMessageConverter<?>> converters) {
+        ObjectMapper mapper = converters.stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+                .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElseGet(() -> new ObjectMapper().addMixIn(Book.class, BookMixIn.class));
+        return new JsonArrayStreamReader(mapper);
+    }
+
+    // 返したStreamをcloseするとレスポンスもcloseされる。必ずtry-with-resourcesで使うこと
+    public <T> Stream<T> read(ClientHttpResponse response, Class<T> elementType) throws IOException {
+
+        JsonParser parser;
+        try {
+            parser = mapper.createParser(response.getBody());
+            JsonToken first = parser.nextToken();
+            if (first == null) { // ボディなし
+                parser.close();
+                response.close();
+                return Stream.empty();
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new IOException("expected JSON array but was " + first);
+            }
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+
+        Spliterator<T> elements = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        return false;
+                    }
+                    action.accept(parser.readValueAs(elementType));
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(elements, false)
+                .onClose(() -> {
+                    try {
+                        parser.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        response.close();
+                    }
+                });
+    }
+}
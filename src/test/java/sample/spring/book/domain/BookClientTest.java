@@ -3,21 +3,28 @@ package sample.spring.book.domain;
 import static org.assertj.core.api.Assertions.*;
 import static sample.spring.book.support.EnabledIfClientType.ClientType.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import jakarta.validation.ConstraintViolationException;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -28,6 +35,7 @@ import sample.spring.book.exception.NotFoundException;
 import sample.spring.book.exception.ValidationException;
 import sample.spring.book.stub.BookApplication;
 import sample.spring.book.stub.BookRepository;
+import sample.spring.book.stub.ChunkedUploadStore;
 import sample.spring.book.stub.impl.InMemoryBookRepository;
 import sample.spring.book.support.EnabledIfClientType;
 
@@ -37,6 +45,9 @@ public abstract class BookClientTest {
 
     private BookClient client;
 
+    @Autowired
+    private ChunkedUploadStore uploadStore;
+
     private final Book expectedBook1 = new Book(1, "燃えよ剣", "司馬遼太郎", LocalDate.of(1972, 6, 1));
     private final Book expectedBook2 = new Book(2, "峠", "司馬遼太郎", LocalDate.of(1968, 10, 1));
     private final Book expectedBook3 = new Book(3, "ノルウェイの森", "村上春樹", LocalDate.of(1987, 9, 4));
@@ -74,6 +85,20 @@ public abstract class BookClientTest {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    @EnabledIfClientType(All)
+    void testGetMany() {
+
+        List<Optional<Book>> actual = client.getMany(List.of(3, 999, 1, 3));
+        assertThat(actual).containsExactly(
+                Optional.of(expectedBook3), Optional.empty(), Optional.of(expectedBook1), Optional.of(expectedBook3));
+        // 重複したidにも別のインスタンスを返すこと
+        assertThat(actual.get(3).get()).isNotSameAs(actual.get(0).get());
+
+        actual = client.getMany(List.of());
+        assertThat(actual).isEmpty();
+    }
+
     @Test
     @EnabledIfClientType(All)
     void testGetAll() {
@@ -118,6 +143,33 @@ public abstract class BookClientTest {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    @EnabledIfClientType({ RestTemplate, RestClient })
+    void testStreamAll() {
+
+        try (Stream<Book> actual = client.streamAll()) {
+            assertThat(actual).containsExactly(expectedBook1, expectedBook2, expectedBook3);
+        }
+
+        // 途中で読むのをやめてもcloseできること
+        try (Stream<Book> actual = client.streamAll()) {
+            assertThat(actual.findFirst()).contains(expectedBook1);
+        }
+    }
+
+    @Test
+    @EnabledIfClientType({ RestTemplate, RestClient })
+    void testStreamByCondition() {
+
+        try (Stream<Book> actual = client.streamByCondition(Map.of("author", "司馬遼太郎"))) {
+            assertThat(actual).containsExactly(expectedBook1, expectedBook2);
+        }
+
+        try (Stream<Book> actual = client.streamByCondition(Map.of("id", "9"))) {
+            assertThat(actual).isEmpty();
+        }
+    }
+
     @Test
     @EnabledIfClientType(All)
     void testFindByAuthorStartingWith() {
@@ -129,6 +181,47 @@ public abstract class BookClientTest {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    @EnabledIfClientType(All)
+    void testIterateAll() {
+
+        // ページの境界をまたいでも全件が順に返ること
+        assertThat(client.iterateAll(2)).toIterable()
+                .containsExactly(expectedBook1, expectedBook2, expectedBook3);
+
+        // 件数とページサイズが一致する場合
+        assertThat(client.iterateAll(3)).toIterable()
+                .containsExactly(expectedBook1, expectedBook2, expectedBook3);
+    }
+
+    @Test
+    @EnabledIfClientType(All)
+    void testIterateByCondition() {
+
+        assertThat(client.iterateByCondition(Map.of("author", "司馬遼太郎"), 1)).toIterable()
+                .containsExactly(expectedBook1, expectedBook2);
+
+        assertThat(client.iterateByCondition(Map.of("id", "9"), 1)).isExhausted();
+    }
+
+    @Test
+    @EnabledIfClientType(All)
+    void testIterateByAuthorStartingWith() {
+
+        assertThat(client.iterateByAuthorStartingWith("司馬", 1)).toIterable()
+                .containsExactly(expectedBook1, expectedBook2);
+
+        assertThat(client.iterateByAuthorStartingWith("unknown", 1)).isExhausted();
+    }
+
+    @Test
+    @EnabledIfClientType({ RestClient, HTTPInterface })
+    void testIterateOccurValidationError() {
+
+        assertThatThrownBy(() -> client.iterateAll(0).hasNext())
+                .isInstanceOf(ValidationException.class);
+    }
+
     @Test
     @EnabledIfClientType(All)
     void testAdd() {
@@ -177,6 +270,39 @@ public abstract class BookClientTest {
         assertThat(actual).isEqualTo("mz-tech-logo-small.png");
     }
 
+    @Test
+    @EnabledIfClientType({ RestClient, HTTPInterface })
+    void testUploadFile(@TempDir Path dir) throws Exception {
+
+        prepareSecurityContext();
+
+        Path file = dir.resolve("scan.png");
+        Files.write(file, new ClassPathResource("mz-tech-logo-small.png").getContentAsByteArray());
+
+        String actual = client.upload(file);
+
+        assertThat(actual).isEqualTo("scan.png");
+    }
+
+    @Test
+    @EnabledIfClientType({ RestClient, HTTPInterface })
+    void testUploadInChunks(@TempDir Path dir) throws Exception {
+
+        prepareSecurityContext();
+
+        // 既定のチャンクサイズ(1MB)で3チャンク、最後は半端なサイズ
+        byte[] content = new byte[2 * 1024 * 1024 + 123];
+        new Random(1).nextBytes(content);
+        Path file = dir.resolve("chunked-" + getClass().getSimpleName() + ".bin");
+        Files.write(file, content);
+
+        String actual = client.uploadInChunks(file);
+
+        assertThat(actual).isEqualTo(file.getFileName().toString());
+        assertThat(uploadStore.getCompleted(actual)).hasValueSatisfying(
+                assembled -> assertThat(assembled).hasBinaryContent(content));
+    }
+
     @Test
     @EnabledIfClientType({ RestClient, HTTPInterface })
     void testDownload() {
@@ -188,6 +314,20 @@ public abstract class BookClientTest {
         assertThat(actual).isNotNull();
     }
 
+    @Test
+    @EnabledIfClientType({ RestClient, HTTPInterface })
+    void testDownloadTo(@TempDir Path dir) throws Exception {
+
+        prepareSecurityContext();
+
+        Path target = dir.resolve("logo.png");
+        long actual = client.downloadTo("mz-tech-logo-small.png", target);
+
+        byte[] expected = new ClassPathResource("mz-tech-logo-small.png").getContentAsByteArray();
+        assertThat(actual).isEqualTo(expected.length);
+        assertThat(Files.readAllBytes(target)).isEqualTo(expected);
+    }
+
     @Test
     @EnabledIfClientType({ RestClient, HTTPInterface })
     void testPathParamLocalDate() {
@@ -0,0 +1,73 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import sample.spring.book.domain.AsyncBookClient;
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.DuplicateException;
+import sample.spring.book.exception.NotFoundException;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class AsyncBookClientAdapterTest {
+
+    private AsyncBookClient asyncClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        this.asyncClient = new AsyncBookClientAdapter(TestClients.restClientAdapter(port));
+    }
+
+    @Test
+    void testComposeIndependentCalls() {
+
+        CompletableFuture<Optional<Book>> book = asyncClient.get(1);
+        CompletableFuture<List<Book>> sameAuthor = asyncClient.findByAuthorStartingWith("司馬");
+
+        List<Book> actual = book.thenCombine(sameAuthor, (b, books) -> books.stream()
+                .filter(other -> !other.getId().equals(b.get().getId()))
+                .toList())
+                .join();
+
+        assertThat(actual).extracting(Book::getId).containsExactly(2);
+    }
+
+    @Test
+    void testExceptionalCompletion() {
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+
+        assertThat(asyncClient.delete(999))
+                .failsWithin(Duration.ofSeconds(10))
+                .withThrowableThat()
+                .withCauseInstanceOf(NotFoundException.class);
+
+        CompletableFuture<Book> duplicate = asyncClient.add("峠", "司馬遼太郎", LocalDate.of(1968, 10, 1));
+        assertThat(duplicate.handle((book, e) -> e).join())
+                .isInstanceOf(DuplicateException.class);
+        // thenApply等で繋いだ後続のステージでは通常どおりCompletionExceptionで包まれる
+        assertThat(duplicate.thenApply(Book::getId).handle((id, e) -> e).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DuplicateException.class);
+    }
+}
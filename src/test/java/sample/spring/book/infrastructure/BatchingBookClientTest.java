@@ -0,0 +1,119 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class BatchingBookClientTest {
+
+    private final AtomicInteger batchCount = new AtomicInteger();
+    // バッチを送った時点の認証情報のprincipal(未認証はnull)
+    private final List<Object> batchPrincipals = Collections.synchronizedList(new ArrayList<>());
+
+    private BookClient batchingClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        // 実際に送られたバッチ回数を数えるためにgetManyをフックする
+        BookClient counting = new DelegatingBookClient(TestClients.restClientAdapter(port)) {
+            @Override
+            public List<Optional<Book>> getMany(Collection<Integer> ids) {
+                batchCount.incrementAndGet();
+                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                batchPrincipals.add(auth != null ? auth.getPrincipal() : null);
+                return super.getMany(ids);
+            }
+        };
+
+        this.batchingClient = new BatchingBookClient(counting, Duration.ofMillis(50), 100);
+    }
+
+    @Test
+    void testCoalesceConcurrentGet() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                int id = (i % 4) + 1; // 1～3は存在、4は存在しない
+                futures.add(executor.submit(() -> batchingClient.get(id)));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Optional<Book> actual = futures.get(i).get();
+            assertThat(actual.map(Book::getId)).isEqualTo(i % 4 == 3 ? Optional.empty() : Optional.of((i % 4) + 1));
+        }
+        assertThat(batchCount.get()).isLessThan(futures.size() / 10);
+    }
+
+    @Test
+    void testSeparateBatchesByCaller() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                String userId = "ID000" + (i % 2);
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext()
+                            .setAuthentication(new TestingAuthenticationToken(userId, "test", "MEMBER"));
+                    return batchingClient.get(1);
+                }));
+            }
+        }
+
+        for (Future<Optional<Book>> future : futures) {
+            assertThat(future.get().map(Book::getId)).contains(1);
+        }
+        // バッチは呼び出し元のユーザー毎に分かれ、それぞれの認証情報で送られる
+        assertThat(batchPrincipals).containsOnly("ID0000", "ID0001").doesNotContainNull();
+    }
+
+    @Test
+    void testSharedResultIsCopied() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                futures.add(executor.submit(() -> batchingClient.get(1)));
+            }
+        }
+
+        // 相乗りした呼び出し元には複製を返すため、同じインスタンスを受け取る呼び出し元はいない
+        Set<Book> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Optional<Book>> future : futures) {
+            instances.add(future.get().orElseThrow());
+        }
+        assertThat(batchCount.get()).isLessThan(futures.size());
+        assertThat(instances).hasSize(futures.size());
+    }
+}
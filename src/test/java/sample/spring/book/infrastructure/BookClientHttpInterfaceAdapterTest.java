@@ -10,7 +10,6 @@ import org.springframework.core.convert.ConversionService;
 import org.springframework.core.env.Environment;
 import org.springframework.format.support.DefaultFormattingConversionService;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.client.RestClient;
@@ -22,8 +21,11 @@ import sample.spring.book.domain.BookClient;
 import sample.spring.book.domain.BookClientTest;
 import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
 import sample.spring.book.infrastructure.component.CustomUriBuilderFactory;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
 import sample.spring.book.infrastructure.component.LoggingClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
 import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+import sample.spring.book.infrastructure.component.TempFileHttpMessageConverter;
 import sample.spring.book.infrastructure.component.converter.LocalDateToStringConverter;
 import sample.spring.book.infrastructure.component.converter.StringToLocalDateConverter;
 import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
@@ -42,7 +44,7 @@ public class BookClientHttpInterfaceAdapterTest extends BookClientTest {
         @Bean
         BookClientApi bookClientApi(Environment env) {
 
-            ClientHttpRequestFactory requestFactory = logginClientHttpRequestFactory();
+            ClientHttpRequestFactory requestFactory = logginClientHttpRequestFactory(env);
             HttpMessageConverter<Object> converter = customMessageConveter();
             UriBuilderFactory uriFactory = customUriBuilderFactory(env);
             ConversionService conversionService = customConversionService();
@@ -50,7 +52,10 @@ public class BookClientHttpInterfaceAdapterTest extends BookClientTest {
             RestClient restClient = RestClient.builder()
                     .requestFactory(requestFactory)
                     .uriBuilderFactory(uriFactory)
-                    .messageConverters(converters -> converters.addFirst(converter))
+                    .messageConverters(converters -> {
+                        converters.addFirst(converter);
+                        converters.add(new TempFileHttpMessageConverter());
+                    })
                     .defaultHeader("Sender-Name", BookClientHttpInterfaceAdapter.class.getSimpleName())
                     .defaultStatusHandler(new BookResponseErrorHandler())
                     .requestInitializer(new PropagateUserContextInitializer())
@@ -79,8 +84,8 @@ public class BookClientHttpInterfaceAdapterTest extends BookClientTest {
             return new CustomMessageConveterFactory().create(LOCAL_DATE_PATTERN);
         }
 
-        private ClientHttpRequestFactory logginClientHttpRequestFactory() {
-            ClientHttpRequestFactory orignal = new HttpComponentsClientHttpRequestFactory();
+        private ClientHttpRequestFactory logginClientHttpRequestFactory(Environment env) {
+            ClientHttpRequestFactory orignal = new PooledHttpComponentsFactory(HttpClientPoolProperties.from(env)).create();
             return new LoggingClientHttpRequestFactory(orignal);
         }
 
@@ -1,13 +1,8 @@
 package sample.spring.book.infrastructure;
 
 import java.time.Duration;
+import java.util.List;
 
-import org.apache.hc.client5.http.config.ConnectionConfig;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ssl.SslBundle;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -28,7 +23,10 @@ import sample.spring.book.domain.BookClient;
 import sample.spring.book.domain.BookClientTest;
 import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
 import sample.spring.book.infrastructure.component.CustomUriBuilderFactory;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
 import sample.spring.book.infrastructure.component.LoggingClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
 import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
 import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
 import sample.spring.book.stub.BookApplication;
@@ -47,7 +45,8 @@ public class BookClientRestClientAdapterTest extends BookClientTest {
         //ClientHttpRequestFactory requestFactory = customClientHttpRequestFactory();
         ClientHttpRequestFactory requestFactory = logginClientHttpRequestFactory();
 
-        HttpMessageConverter<Object> converter = customMessageConveter();
+        // CBORを優先し、JSONにフォールバックする
+        List<HttpMessageConverter<?>> converters = customMessageConveters();
 
         //UriBuilderFactory uriFactory = queryParamSettingUriBuilderFactory(port);
         UriBuilderFactory uriFactory = customUriBuilderFactory();
@@ -56,14 +55,14 @@ public class BookClientRestClientAdapterTest extends BookClientTest {
                 .requestFactory(requestFactory)
                 //.baseUrl("http://localhost:" + port)
                 .uriBuilderFactory(uriFactory)
-                .messageConverters(converters -> converters.addFirst(converter))
+                .messageConverters(defaults -> defaults.addAll(0, converters))
                 .defaultHeader("Sender-Name", BookClientRestClientAdapter.class.getSimpleName())
                 .defaultStatusHandler(new BookResponseErrorHandler())
                 .requestInitializer(new PropagateUserContextInitializer())
                 //.requestInterceptor(new LoggingInterceptor())
                 .build();
 
-        return new BookClientRestClientAdapter(restClient);
+        return new BookClientRestClientAdapter(restClient, new FanOutExecutor(4, 2));
     }
 
     private UriBuilderFactory queryParamSettingUriBuilderFactory(int port) {
@@ -75,11 +74,11 @@ public class BookClientRestClientAdapterTest extends BookClientTest {
 
     private UriBuilderFactory customUriBuilderFactory() {
         String baseUriTemplate = "http://localhost:${local.server.port}";
-        return new CustomUriBuilderFactory(env, baseUriTemplate, LOCAL_DATE_PATTERN);
+        return new CustomUriBuilderFactory(env, baseUriTemplate, LOCAL_DATE_PATTERN, true);
     }
 
-    private HttpMessageConverter<Object> customMessageConveter() {
-        return new CustomMessageConveterFactory().create(LOCAL_DATE_PATTERN);
+    private List<HttpMessageConverter<?>> customMessageConveters() {
+        return new CustomMessageConveterFactory().createConverters(LOCAL_DATE_PATTERN);
     }
 
     private ClientHttpRequestFactory simpleClientHttpRequestFactory() {
@@ -96,29 +95,12 @@ public class BookClientRestClientAdapterTest extends BookClientTest {
     }
 
     private ClientHttpRequestFactory customClientHttpRequestFactory() {
-
-        ConnectionConfig connectionConfig = ConnectionConfig.custom()
-                .setConnectTimeout(Timeout.ofSeconds(5))   // 接続タイムアウト(default:3sec)
-                .build();
-
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setDefaultConnectionConfig(connectionConfig);
-
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setResponseTimeout(Timeout.ofSeconds(30)) // 読み取りタイムアウト(default:none)
-                .setMaxRedirects(3)                         // 最大リダイレクト回数(default:50)
-                .build();
-
-        CloseableHttpClient httpClient = HttpClients.custom()
-                .setConnectionManager(connectionManager)
-                .setDefaultRequestConfig(requestConfig)
-                .build();
-
-        return new HttpComponentsClientHttpRequestFactory(httpClient);
+        // プール上限やタイムアウトはbook.client.pool.*で設定する(HttpClientPoolProperties)
+        return new PooledHttpComponentsFactory(HttpClientPoolProperties.from(env)).create();
     }
 
     private ClientHttpRequestFactory logginClientHttpRequestFactory() {
-        ClientHttpRequestFactory orignal = new HttpComponentsClientHttpRequestFactory();
+        ClientHttpRequestFactory orignal = customClientHttpRequestFactory();
         return new LoggingClientHttpRequestFactory(orignal);
     }
 }
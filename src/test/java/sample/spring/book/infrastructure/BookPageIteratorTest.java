@@ -0,0 +1,88 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.jupiter.api.Test;
+
+import sample.spring.book.domain.Book;
+
+class BookPageIteratorTest {
+
+    private static final Book BOOK1 = new Book(1, "a", "x", LocalDate.of(2000, 1, 1));
+    private static final Book BOOK2 = new Book(2, "b", "y", LocalDate.of(2000, 1, 2));
+    private static final Book BOOK3 = new Book(3, "c", "z", LocalDate.of(2000, 1, 3));
+
+    // カーソル => ページ(最初のページのカーソルは"")
+    private static final Map<String, BookPage> PAGES = Map.of(
+            "", new BookPage(List.of(BOOK1), "p2"),
+            "p2", new BookPage(List.of(), "p3"),
+            "p3", new BookPage(List.of(BOOK2, BOOK3), null));
+
+    @Test
+    void testIterate() throws Exception {
+
+        List<String> fetched = new ArrayList<>();
+        BlockingQueue<Runnable> prefetches = new LinkedBlockingQueue<>();
+        // 先読みのタスクは溜めておき、テストから実行する
+        Executor executor = prefetches::add;
+
+        BookPageIterator iterator = new BookPageIterator(after -> {
+            fetched.add(after);
+            return PAGES.get(after == null ? "" : after);
+        }, executor);
+
+        // 最初のhasNextまでは取得しない
+        assertThat(fetched).isEmpty();
+
+        assertThat(iterator.next()).isEqualTo(BOOK1);
+        assertThat(fetched).containsExactly((String) null);
+        // 最初のページを受け取った時点で次のページの取得を始めている
+        assertThat(prefetches).hasSize(1);
+
+        prefetches.take().run();
+        assertThat(fetched).containsExactly(null, "p2");
+
+        // 空のページはとばして次のページを待つ
+        Thread runner = Thread.ofVirtual().start(() -> {
+            try {
+                prefetches.take().run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(iterator.next()).isEqualTo(BOOK2);
+        assertThat(iterator.next()).isEqualTo(BOOK3);
+        assertThat(iterator.hasNext()).isFalse();
+        assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+
+        runner.join();
+        assertThat(prefetches).isEmpty();
+        assertThat(fetched).containsExactly(null, "p2", "p3");
+    }
+
+    @Test
+    void testPropagateExceptionOfPrefetch() {
+
+        BookPageIterator iterator = new BookPageIterator(after -> {
+            if (after == null) {
+                return new BookPage(List.of(BOOK1), "p2");
+            }
+            throw new IllegalStateException("gone");
+        });
+
+        assertThat(iterator.next()).isEqualTo(BOOK1);
+        // 先読みで発生した例外はCompletionExceptionで包まずに返す
+        assertThatThrownBy(iterator::hasNext)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("gone");
+    }
+}
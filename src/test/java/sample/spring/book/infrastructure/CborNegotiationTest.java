@@ -0,0 +1,117 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class CborNegotiationTest {
+
+    private static final String PATTERN = BookClientTest.LOCAL_DATE_PATTERN;
+
+    private final CustomMessageConveterFactory factory = new CustomMessageConveterFactory();
+
+    // 受信したレスポンスのContent-TypeとVary
+    private final List<MediaType> contentTypes = new CopyOnWriteArrayList<>();
+    private final List<String> varies = new CopyOnWriteArrayList<>();
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @Test
+    void testPreferCbor() {
+
+        List<Book> cbor = new BookClientRestClientAdapter(restClient(factory.createConverters(PATTERN))).getAll();
+        List<Book> json = new BookClientRestClientAdapter(restClient(List.of(factory.create(PATTERN)))).getAll();
+
+        assertThat(contentTypes).containsExactly(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON);
+        // 圧縮を有効にしたTomcatはVaryを小文字でまとめ直す(accept,accept-encoding)
+        assertThat(varies).allSatisfy(vary -> assertThat(vary).containsIgnoringCase(HttpHeaders.ACCEPT));
+        assertThat(cbor).isNotEmpty().isEqualTo(json);
+    }
+
+    @Test
+    void testFallbackToJson() {
+
+        // CBORに対応していないサーバー
+        RestClient.Builder builder = RestClient.builder()
+                .messageConverters(defaults -> defaults.addAll(0, factory.createConverters(PATTERN)));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        server.expect(requestTo("/books"))
+                .andExpect(header(HttpHeaders.ACCEPT, "application/cbor, application/json;q=0.9"))
+                .andRespond(withSuccess("""
+                        [{"id":1,"title":"title","author":"author","published":"2024.10.01"}]
+                        """, MediaType.APPLICATION_JSON));
+
+        List<Book> actual = new BookClientRestClientAdapter(builder.build()).getAll();
+
+        assertThat(actual).containsExactly(new Book(1, "title", "author", LocalDate.of(2024, 10, 1)));
+        server.verify();
+    }
+
+    @Test
+    void testWriteJsonToJsonOnlyServer() {
+
+        // CBORに対応していないサーバー。CBORのボディを送ると415になる
+        RestClient.Builder builder = RestClient.builder()
+                .messageConverters(defaults -> defaults.addAll(0, factory.createConverters(PATTERN)));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        String response = """
+                {"id":1,"title":"title","author":"author","published":"2024.10.01"}
+                """;
+        server.expect(requestTo("/books"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("""
+                        {"title":"title","author":"author","published":"2024.10.01"}
+                        """))
+                .andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+        server.expect(requestTo("/books"))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(response))
+                .andRespond(withSuccess(response, MediaType.APPLICATION_JSON));
+
+        BookClientRestClientAdapter client = new BookClientRestClientAdapter(builder.build());
+        Book added = client.add("title", "author", LocalDate.of(2024, 10, 1));
+        Book updated = client.update(added);
+
+        assertThat(updated).isEqualTo(added);
+        server.verify();
+    }
+
+    private RestClient restClient(List<HttpMessageConverter<?>> converters) {
+        return RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .messageConverters(defaults -> defaults.addAll(0, converters))
+                .requestInterceptor((request, body, execution) -> {
+                    ClientHttpResponse response = execution.execute(request, body);
+                    contentTypes.add(response.getHeaders().getContentType());
+                    varies.add(String.join(",", response.getHeaders().getVary()));
+                    return response;
+                })
+                .build();
+    }
+}
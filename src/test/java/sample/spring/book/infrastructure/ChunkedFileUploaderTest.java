@@ -0,0 +1,209 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.exception.ValidationException;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+import sample.spring.book.stub.ChunkedUploadStore;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class ChunkedFileUploaderTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private ChunkedUploadStore uploadStore;
+
+    // 送信したチャンクのURI
+    private final List<String> chunks = new CopyOnWriteArrayList<>();
+
+    // trueの間は最初のチャンクの送信を通信断で失敗させる
+    private final AtomicBoolean breakFirstChunk = new AtomicBoolean();
+    private final AtomicReference<String> brokenChunk = new AtomicReference<>();
+
+    private RestClient restClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        this.restClient = RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInitializer(new PropagateUserContextInitializer())
+                .requestInterceptor((request, body, execution) -> {
+                    if (request.getMethod() != HttpMethod.PUT) {
+                        return execution.execute(request, body);
+                    }
+                    String uri = request.getURI().getPath();
+                    chunks.add(uri);
+                    if (breakFirstChunk.getAndSet(false)) {
+                        brokenChunk.set(uri);
+                        throw new IOException("connection reset");
+                    }
+                    return execution.execute(request, body);
+                })
+                .build();
+
+        SecurityContextHolder.getContext()
+                .setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+    }
+
+    @Test
+    void testUploadInChunks(@TempDir Path dir) throws Exception {
+
+        Path file = write(dir.resolve("chunks.bin"), 4500);
+
+        String actual = uploader(1).upload(file);
+
+        assertThat(actual).isEqualTo("chunks.bin");
+        assertThat(uploadStore.getCompleted(actual)).hasValueSatisfying(
+                assembled -> assertThat(assembled).hasSameBinaryContentAs(file));
+        assertThat(chunks).hasSize(5);
+    }
+
+    @Test
+    void testUploadEmptyFile(@TempDir Path dir) throws Exception {
+
+        Path file = Files.createFile(dir.resolve("empty.bin"));
+
+        String actual = uploader(1).upload(file);
+
+        // チャンクを送らずにcompleteできること
+        assertThat(actual).isEqualTo("empty.bin");
+        assertThat(uploadStore.getCompleted(actual)).hasValueSatisfying(
+                assembled -> assertThat(assembled).isEmptyFile());
+        assertThat(chunks).isEmpty();
+    }
+
+    @Test
+    void testRetryOnlyFailedChunk(@TempDir Path dir) throws Exception {
+
+        Path file = write(dir.resolve("retry.bin"), 3000);
+        breakFirstChunk.set(true);
+
+        uploader(1).upload(file);
+
+        assertThat(uploadStore.getCompleted("retry.bin")).hasValueSatisfying(
+                assembled -> assertThat(assembled).hasSameBinaryContentAs(file));
+        // 失敗したチャンクだけがもう一度送られる
+        assertThat(chunks).hasSize(4);
+        assertThat(chunks).filteredOn(brokenChunk.get()::equals).hasSize(2);
+    }
+
+    @Test
+    void testGiveUpAfterMaxRetries(@TempDir Path dir) throws Exception {
+
+        Path file = write(dir.resolve("give-up.bin"), 3000);
+        breakFirstChunk.set(true);
+
+        assertThatThrownBy(() -> uploader(0).upload(file))
+                .hasRootCauseInstanceOf(IOException.class);
+        assertThat(uploadStore.getCompleted("give-up.bin")).isEmpty();
+    }
+
+    @Test
+    void testCompleteWithMissingChunks() {
+
+        ChunkedFileUploader.Transport transport = ChunkedFileUploader.Transport.of(restClient);
+        UploadSessionResponse session = transport.initiate(new InitiateUploadRequest("missing.bin", 3000, CHUNK_SIZE));
+        transport.putChunk(session.uploadId(), 0, new byte[CHUNK_SIZE]);
+
+        assertThatThrownBy(() -> transport.complete(session.uploadId()))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("2 chunks are missing");
+    }
+
+    @Test
+    void testInvalidChunk() {
+
+        ChunkedFileUploader.Transport transport = ChunkedFileUploader.Transport.of(restClient);
+        UploadSessionResponse session = transport.initiate(new InitiateUploadRequest("invalid.bin", 3000, CHUNK_SIZE));
+
+        assertThatThrownBy(() -> transport.putChunk(session.uploadId(), 500, new byte[CHUNK_SIZE]))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("invalid chunk offset =>500");
+        assertThatThrownBy(() -> transport.putChunk(session.uploadId(), 0, new byte[CHUNK_SIZE + 1]))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> transport.putChunk("unknown", 0, new byte[CHUNK_SIZE]))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testDeleteAbandonedUpload() {
+
+        ChunkedFileUploader.Transport transport = ChunkedFileUploader.Transport.of(restClient);
+        UploadSessionResponse session = transport.initiate(
+                new InitiateUploadRequest("abandoned.bin", 3000, CHUNK_SIZE));
+        transport.putChunk(session.uploadId(), 0, new byte[CHUNK_SIZE]);
+        Path part = uploadStore.getInProgress(session.uploadId()).orElseThrow();
+
+        uploadStore.abandonIdle(Duration.ZERO);
+
+        // 放棄されたアップロードは一時ファイルごと捨てられ、続きは送れない
+        assertThat(part).doesNotExist();
+        assertThatThrownBy(() -> transport.putChunk(session.uploadId(), CHUNK_SIZE, new byte[CHUNK_SIZE]))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void testDeleteReplacedAndEvictedFiles(@TempDir Path dir) throws Exception {
+
+        Path file = write(dir.resolve("replaced.bin"), 1500);
+        uploader(1).upload(file);
+        Path first = uploadStore.getCompleted("replaced.bin").orElseThrow();
+
+        // 同じファイル名で送り直すと前のファイルは消える
+        uploader(1).upload(file);
+        assertThat(first).doesNotExist();
+        Path second = uploadStore.getCompleted("replaced.bin").orElseThrow();
+        assertThat(second).hasSameBinaryContentAs(file);
+
+        // 上限を超えると古いものから消える
+        Path empty = Files.createFile(dir.resolve("empty.bin"));
+        for (int i = 0; i < ChunkedUploadStore.MAX_COMPLETED; i++) {
+            uploader(1).upload(Files.copy(empty, dir.resolve("evict-" + i + ".bin")));
+        }
+        assertThat(uploadStore.getCompleted("replaced.bin")).isEmpty();
+        assertThat(second).doesNotExist();
+        assertThat(uploadStore.getCompleted("evict-0.bin")).isPresent();
+    }
+
+    private ChunkedFileUploader uploader(int maxRetries) {
+        return new ChunkedFileUploader(ChunkedFileUploader.Transport.of(restClient), new FanOutExecutor(4),
+                CHUNK_SIZE, maxRetries);
+    }
+
+    private Path write(Path file, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return Files.write(file, content);
+    }
+}
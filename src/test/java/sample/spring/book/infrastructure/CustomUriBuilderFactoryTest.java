@@ -0,0 +1,57 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import sample.spring.book.infrastructure.component.CustomUriBuilderFactory;
+
+public class CustomUriBuilderFactoryTest {
+
+    private static final String BASE_URI_TEMPLATE = "http://localhost:${local.server.port}";
+
+    private final MockEnvironment env = new MockEnvironment().withProperty("local.server.port", "8080");
+
+    private final LocalDate localDate = LocalDate.of(2024, 10, 1);
+
+    @Test
+    void testSameUriInBothModes() {
+
+        CustomUriBuilderFactory resolving = new CustomUriBuilderFactory(env, BASE_URI_TEMPLATE, "yyyy.MM.dd");
+        CustomUriBuilderFactory cached = new CustomUriBuilderFactory(env, BASE_URI_TEMPLATE, "yyyy.MM.dd", true);
+
+        for (CustomUriBuilderFactory factory : new CustomUriBuilderFactory[] { resolving, cached }) {
+            // 2回目は解析済みのテンプレートから作られる
+            for (int i = 0; i < 2; i++) {
+                assertThat(factory.expand("/books/{id}", 1)).isEqualTo(URI.create("http://localhost:8080/books/1"));
+                assertThat(factory.uriString("/books/localdate/{localdate}").build(localDate))
+                        .isEqualTo(URI.create("http://localhost:8080/books/localdate/2024.10.01"));
+                // 連結したqueryParamもLocalDateが変換される
+                assertThat(factory.uriString("/books/search")
+                        .queryParam("author", "村上")
+                        .queryParam("published", localDate)
+                        .build())
+                        .isEqualTo(URI.create(
+                                "http://localhost:8080/books/search?author=%E6%9D%91%E4%B8%8A&published=2024.10.01"));
+            }
+        }
+    }
+
+    @Test
+    void testRefresh() {
+
+        CustomUriBuilderFactory cached = new CustomUriBuilderFactory(env, BASE_URI_TEMPLATE, "yyyy.MM.dd", true);
+        assertThat(cached.expand("/books")).isEqualTo(URI.create("http://localhost:8080/books"));
+
+        // 解決済みのベースURIはrefreshするまで変わらない
+        env.setProperty("local.server.port", "9090");
+        assertThat(cached.expand("/books")).isEqualTo(URI.create("http://localhost:8080/books"));
+
+        cached.refresh();
+        assertThat(cached.expand("/books")).isEqualTo(URI.create("http://localhost:9090/books"));
+    }
+}
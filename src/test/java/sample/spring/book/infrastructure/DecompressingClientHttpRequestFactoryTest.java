@@ -0,0 +1,187 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.DecompressingClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.DelegatingClientHttpRequest;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// スタブの一覧(3件)でも圧縮されるよう閾値を下げる
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = "book.compression.min-response-size=64B")
+@ActiveProfiles("test")
+public class DecompressingClientHttpRequestFactoryTest {
+
+    // 通信路上のリクエストのAccept-EncodingとレスポンスのContent-Encoding
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private final List<String> contentEncodings = new CopyOnWriteArrayList<>();
+
+    private RestClient restClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+        // HttpURLConnectionは自前で展開しないため、デコレーターの展開を確認できる
+        ClientHttpRequestFactory requestFactory = new DecompressingClientHttpRequestFactory(
+                recording(new SimpleClientHttpRequestFactory()));
+        this.restClient = RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .requestFactory(requestFactory)
+                .messageConverters(converters -> converters.addFirst(
+                        new CustomMessageConveterFactory().create(BookClientTest.LOCAL_DATE_PATTERN)))
+                .build();
+    }
+
+    @Test
+    void testGzipResponse() {
+
+        List<Book> actual = new BookClientRestClientAdapter(restClient).getAll();
+
+        assertThat(actual).isNotEmpty();
+        assertThat(acceptEncodings).containsExactly(DecompressingClientHttpRequestFactory.ACCEPT_ENCODING);
+        assertThat(contentEncodings).containsExactly("gzip");
+    }
+
+    @Test
+    void testStreamGzipResponse() {
+
+        List<Book> expected = new BookClientRestClientAdapter(restClient).getAll();
+        try (Stream<Book> actual = new BookClientRestClientAdapter(restClient).streamAll()) {
+            assertThat(actual.toList()).isEqualTo(expected);
+        }
+        assertThat(contentEncodings).containsExactly("gzip", "gzip");
+    }
+
+    @Test
+    void testSmallResponseNotCompressed() {
+
+        String actual = restClient.get()
+                .uri("/books/localdate?localdate={localdate}", "2024.10.01")
+                .retrieve()
+                .body(String.class);
+
+        assertThat(actual).isEqualTo("2024.10.01");
+        assertThat(contentEncodings).containsExactly("null");
+    }
+
+    @Test
+    void testRangeRequestNotNegotiated() {
+
+        byte[] actual = restClient.get()
+                .uri("/books/files/{filename}", "mz-tech-logo-small.png")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .retrieve()
+                .body(byte[].class);
+
+        assertThat(actual).hasSize(10);
+        assertThat(acceptEncodings).containsExactly("null");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "gzip", "deflate", "raw-deflate" })
+    void testDecompressLazily(String encoding) throws IOException {
+
+        // 圧縮後も展開のバッファより十分大きくなるよう、要素ごとに値を変える
+        byte[] plain = IntStream.range(0, 100_000)
+                .mapToObj(i -> "{\"id\":" + i + ",\"title\":\"title" + (i * 7919 % 100_003) + "\"}")
+                .collect(Collectors.joining(",", "[", "]"))
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(encoding, plain);
+        ByteArrayInputStream wire = new ByteArrayInputStream(compressed);
+
+        try (ClientHttpResponse response = execute(wire, encoding.replace("raw-", ""))) {
+
+            assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+            assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+
+            // 先頭を読んだ時点では圧縮されたボディの一部しか読まれていない
+            InputStream body = response.getBody();
+            assertThat(body.readNBytes(100)).isEqualTo(Arrays.copyOf(plain, 100));
+            assertThat(wire.available()).isGreaterThan(0);
+
+            assertThat(body.readAllBytes()).hasSize(plain.length - 100);
+        }
+    }
+
+    @Test
+    void testEmptyBody() throws IOException {
+        try (ClientHttpResponse response = execute(new ByteArrayInputStream(new byte[0]), "gzip")) {
+            assertThat(response.getBody().read()).isEqualTo(-1);
+        }
+    }
+
+    private ClientHttpResponse execute(InputStream wire, String contentEncoding) throws IOException {
+
+        MockClientHttpResponse response = new MockClientHttpResponse(wire, HttpStatus.OK);
+        response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        response.getHeaders().setContentLength(1);
+
+        DecompressingClientHttpRequestFactory factory = new DecompressingClientHttpRequestFactory((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(response);
+            return request;
+        });
+        return factory.createRequest(URI.create("http://localhost/books"), HttpMethod.GET).execute();
+    }
+
+    private static byte[] compress(String encoding, byte[] plain) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressing = switch (encoding) {
+            case "gzip" -> new GZIPOutputStream(out);
+            case "deflate" -> new DeflaterOutputStream(out);
+            default -> new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        }) {
+            compressing.write(plain);
+        }
+        return out.toByteArray();
+    }
+
+    private ClientHttpRequestFactory recording(ClientHttpRequestFactory factory) {
+        return (uri, method) -> new DelegatingClientHttpRequest(factory.createRequest(uri, method)) {
+            @Override
+            public ClientHttpResponse execute() throws IOException {
+                acceptEncodings.add(String.valueOf(getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING)));
+                ClientHttpResponse response = delegate.execute();
+                contentEncodings.add(String.valueOf(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)));
+                return response;
+            }
+        };
+    }
+}
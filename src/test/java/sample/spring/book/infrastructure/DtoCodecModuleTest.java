@@ -0,0 +1,87 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.ErrorMessage;
+import sample.spring.book.infrastructure.component.jackson.ConfigurableLocalDateDeserializer;
+import sample.spring.book.infrastructure.component.jackson.ConfigurableLocalDateSerializer;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+public class DtoCodecModuleTest {
+
+    private static final String PATTERN = BookClientTest.LOCAL_DATE_PATTERN;
+
+    private final ObjectMapper codecMapper = new CustomMessageConveterFactory().createObjectMapper(PATTERN);
+
+    // DtoCodecModuleを登録しないdatabindだけのObjectMapper
+    private final ObjectMapper databindMapper = new ObjectMapper().registerModule(new SimpleModule()
+            .addSerializer(LocalDate.class, new ConfigurableLocalDateSerializer(PATTERN))
+            .addDeserializer(LocalDate.class, new ConfigurableLocalDateDeserializer(PATTERN)));
+
+    static List<Object> dtos() {
+        LocalDate published = LocalDate.of(2024, 10, 1);
+        return List.of(
+                new BookResponse(1, "title", "author", published),
+                new BookResponse(2, null, null, null),
+                new AddRequest("タイトル", "著者\"\\", published),
+                new AddRequest(null, null, null),
+                new UpdateRequest(3, "title", "author", published),
+                new ErrorMessage("not found"),
+                new ErrorMessage(null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dtos")
+    void testSameAsDatabind(Object dto) throws Exception {
+
+        String json = codecMapper.writeValueAsString(dto);
+
+        assertThat(json).isEqualTo(databindMapper.writeValueAsString(dto));
+        assertThat(codecMapper.readValue(json, dto.getClass())).isEqualTo(dto);
+        assertThat(databindMapper.readValue(json, dto.getClass())).isEqualTo(dto);
+    }
+
+    @Test
+    void testFieldOrderAndMissingFields() throws Exception {
+
+        BookResponse actual = codecMapper.readValue("""
+                {"published":"2024.10.01","title":"title","id":"5"}
+                """, BookResponse.class);
+
+        assertThat(actual).isEqualTo(new BookResponse(5, "title", null, LocalDate.of(2024, 10, 1)));
+        assertThat(codecMapper.readValue("{}", ErrorMessage.class)).isEqualTo(new ErrorMessage(null));
+    }
+
+    @Test
+    void testList() throws Exception {
+
+        List<BookResponse> books = List.of(
+                new BookResponse(1, "title1", "author1", LocalDate.of(2024, 10, 1)),
+                new BookResponse(2, "title2", "author2", LocalDate.of(2024, 10, 2)));
+
+        List<BookResponse> actual = codecMapper.readValue(codecMapper.writeValueAsBytes(books),
+                new TypeReference<List<BookResponse>>() {});
+
+        assertThat(actual).isEqualTo(books);
+    }
+
+    @Test
+    void testUnknownProperty() {
+        // databindと同じくFAIL_ON_UNKNOWN_PROPERTIESに従う
+        assertThatThrownBy(() -> codecMapper.readValue("{\"message\":\"m\",\"code\":1}", ErrorMessage.class))
+                .isInstanceOf(UnrecognizedPropertyException.class);
+    }
+}
@@ -0,0 +1,321 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.HttpCacheInterceptor;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class HttpCacheInterceptorTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    private HttpCacheInterceptor cache;
+
+    private BookClient cachingClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        this.cache = new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES, null, clock);
+
+        RestTemplate restTemplate = TestClients.restTemplate(port);
+        restTemplate.getInterceptors().add(cache);
+
+        this.cachingClient = new BookClientRestTemplateAdapter(restTemplate);
+    }
+
+    @Test
+    void testFreshHitAndRevalidation() {
+
+        Optional<Book> first = cachingClient.get(1);
+        Optional<Book> second = cachingClient.get(1);
+
+        assertThat(second).isEqualTo(first).isPresent();
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        // max-age(5s)を過ぎたらIf-None-Matchで再検証し、304で保存済みのボディを再利用する
+        clock.advance(Duration.ofSeconds(10));
+        Optional<Book> third = cachingClient.get(1);
+
+        assertThat(third).isEqualTo(first);
+        assertThat(cache.getRevalidationCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testNotCacheableResponse() {
+
+        // ETagもCache-Controlも付かない(Spring Securityのno-storeが付く)レスポンスは保存しない
+        cachingClient.findByAuthorStartingWith("司馬");
+        cachingClient.findByAuthorStartingWith("司馬");
+
+        assertThat(cache.getHitCount()).isZero();
+        assertThat(cache.getCurrentBytes()).isZero();
+    }
+
+    @Test
+    void testSeeUpdatedBookAfterUpdate() {
+
+        RestTemplate restTemplate = cachingRestTemplate(
+                new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES, null, clock));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("/books/1"))
+                .andRespond(withSuccess(BOOK_1.formatted("燃えよ剣"), MediaType.APPLICATION_JSON)
+                        .headers(cacheable("\"v1\"")));
+        server.expect(requestTo("/books")).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[" + BOOK_1.formatted("燃えよ剣") + "]", MediaType.APPLICATION_JSON)
+                        .headers(cacheable("\"list1\"")));
+        // 更新はPUT /booksのため、/books/1と/booksのどちらも無効化されてサーバーに問い合わせること
+        server.expect(requestTo("/books")).andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(BOOK_1.formatted("updated"), MediaType.APPLICATION_JSON));
+        server.expect(requestTo("/books/1"))
+                .andRespond(withSuccess(BOOK_1.formatted("updated"), MediaType.APPLICATION_JSON)
+                        .headers(cacheable("\"v2\"")));
+        server.expect(requestTo("/books")).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[" + BOOK_1.formatted("updated") + "]", MediaType.APPLICATION_JSON)
+                        .headers(cacheable("\"list2\"")));
+
+        BookClient client = new BookClientRestTemplateAdapter(restTemplate);
+        Book book = client.get(1).orElseThrow();
+        client.getAll();
+        client.update(new Book(book.getId(), "updated", book.getAuthor(), book.getPublished()));
+
+        assertThat(client.get(1)).hasValueSatisfying(actual -> assertThat(actual.getTitle()).isEqualTo("updated"));
+        assertThat(client.getAll()).singleElement().extracting(Book::getTitle).isEqualTo("updated");
+        server.verify();
+    }
+
+    @Test
+    void testNotSeeDeletedBookInCollection() {
+
+        RestTemplate restTemplate = cachingRestTemplate(
+                new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES, null, clock));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("/books")).andRespond(withSuccess("[" + BOOK_1.formatted("燃えよ剣") + "]",
+                MediaType.APPLICATION_JSON).headers(cacheable("\"list1\"")));
+        // 削除はDELETE /books/1のため、/booksも無効化されてサーバーに問い合わせること
+        server.expect(requestTo("/books/1")).andExpect(method(HttpMethod.DELETE)).andRespond(withSuccess());
+        server.expect(requestTo("/books")).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON)
+                .headers(cacheable("\"list2\"")));
+
+        BookClient client = new BookClientRestTemplateAdapter(restTemplate);
+        assertThat(client.getAll()).extracting(Book::getId).containsExactly(1);
+        client.delete(1);
+
+        assertThat(client.getAll()).isEmpty();
+        server.verify();
+    }
+
+    @Test
+    void testNotStoreResponseOverlappingWrite() throws Exception {
+
+        HttpCacheInterceptor unitCache = new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES, null, clock);
+
+        // GETの実行中に更新が成功した場合、そのGETのレスポンス(更新前の可能性がある)は保存しない
+        assertThat(get(unitCache, () -> {
+            write(unitCache, HttpMethod.PUT, HttpStatus.OK);
+            return response(HttpStatus.OK, "v1", "max-age=60");
+        })).isEqualTo("v1");
+        assertThat(unitCache.getCurrentBytes()).isZero();
+
+        // 失敗した更新では無効化しない
+        assertThat(get(unitCache, () -> response(HttpStatus.OK, "v2", "max-age=60"))).isEqualTo("v2");
+        write(unitCache, HttpMethod.PUT, HttpStatus.BAD_REQUEST);
+        assertThat(get(unitCache, () -> fail("must be served from cache"))).isEqualTo("v2");
+    }
+
+    @Test
+    void testSeparateEntriesByUser() throws Exception {
+
+        HttpCacheInterceptor unitCache = new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES, null, clock);
+
+        assertThat(get(unitCache, "ID0001", () -> response(HttpStatus.OK, "for ID0001", "max-age=60")))
+                .isEqualTo("for ID0001");
+        // 別の利用者には保存済みのレスポンスを返さない
+        assertThat(get(unitCache, "ID0002", () -> response(HttpStatus.OK, "for ID0002", "max-age=60")))
+                .isEqualTo("for ID0002");
+        assertThat(get(unitCache, "ID0001", () -> fail("must be served from cache"))).isEqualTo("for ID0001");
+        assertThat(get(unitCache, "ID0002", () -> fail("must be served from cache"))).isEqualTo("for ID0002");
+
+        // 更新による無効化は利用者をまたいで行う
+        write(unitCache, HttpMethod.PUT, HttpStatus.OK);
+        assertThat(unitCache.getCurrentBytes()).isZero();
+    }
+
+    @Test
+    void testDropEntryWhenBackgroundResponseIsNotStorable() throws Exception {
+
+        // バックグラウンドの再検証にno-storeの200が返った場合
+        HttpCacheInterceptor swrCache = new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES,
+                factory(() -> response(HttpStatus.OK, "v2", "no-store")), clock);
+
+        assertThat(get(swrCache, () -> response(HttpStatus.OK, "v1", STALE_WHILE_REVALIDATE))).isEqualTo("v1");
+
+        clock.advance(Duration.ofSeconds(2));
+        assertThat(get(swrCache, () -> fail("must be served from cache"))).isEqualTo("v1");
+
+        // 古いエントリーは外され、次のリクエストはサーバーに問い合わせる
+        await(() -> swrCache.getCurrentBytes() == 0);
+        assertThat(get(swrCache, () -> response(HttpStatus.OK, "v3", "no-store"))).isEqualTo("v3");
+    }
+
+    @Test
+    void testRevalidateAgainAfterBackgroundFailure() throws Exception {
+
+        // バックグラウンドの再検証が500で失敗しても、次のstaleなリクエストで再び再検証する
+        AtomicInteger revalidationCount = new AtomicInteger();
+        HttpCacheInterceptor swrCache = new HttpCacheInterceptor(HttpCacheInterceptor.DEFAULT_MAX_BYTES,
+                factory(() -> {
+                    revalidationCount.incrementAndGet();
+                    return response(HttpStatus.INTERNAL_SERVER_ERROR, "error", "no-store");
+                }), clock);
+
+        assertThat(get(swrCache, () -> response(HttpStatus.OK, "v1", STALE_WHILE_REVALIDATE))).isEqualTo("v1");
+
+        clock.advance(Duration.ofSeconds(2));
+        await(() -> {
+            // 失敗の間は保存済みのエントリーを返し続ける
+            assertThat(get(swrCache, () -> fail("must be served from cache"))).isEqualTo("v1");
+            return revalidationCount.get() >= 2;
+        });
+    }
+
+    private static final String STALE_WHILE_REVALIDATE = "max-age=1, stale-while-revalidate=60";
+
+    private static String get(HttpCacheInterceptor interceptor, Supplier<ClientHttpResponse> server)
+            throws IOException {
+        return get(interceptor, null, server);
+    }
+
+    private static String get(HttpCacheInterceptor interceptor, String userId, Supplier<ClientHttpResponse> server)
+            throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("/books/1"));
+        if (userId != null) {
+            request.getHeaders().add(PropagateUserContextInitializer.USER_ID, userId);
+            request.getHeaders().add(PropagateUserContextInitializer.ROLES, "MEMBER");
+        }
+        try (ClientHttpResponse response = interceptor.intercept(request, new byte[0], (r, b) -> server.get())) {
+            return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final String BOOK_1 = """
+            {"id":1,"title":"%s","author":"司馬遼太郎","published":"1972.06.01"}
+            """;
+
+    private static RestTemplate cachingRestTemplate(HttpCacheInterceptor interceptor) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getMessageConverters()
+                .addFirst(new CustomMessageConveterFactory().create(BookClientTest.LOCAL_DATE_PATTERN));
+        restTemplate.getInterceptors().add(interceptor);
+        return restTemplate;
+    }
+
+    private static HttpHeaders cacheable(String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=60");
+        headers.setETag(etag);
+        return headers;
+    }
+
+    private static void write(HttpCacheInterceptor interceptor, HttpMethod method, HttpStatus status) {
+        MockClientHttpRequest request = new MockClientHttpRequest(method, URI.create("/books"));
+        try {
+            interceptor.intercept(request, new byte[0], (r, b) -> new MockClientHttpResponse(new byte[0], status))
+                    .close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ClientHttpRequestFactory factory(Supplier<ClientHttpResponse> server) {
+        return (uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(server.get());
+            return request;
+        };
+    }
+
+    private static ClientHttpResponse response(HttpStatus status, String body, String cacheControl) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), status);
+        response.getHeaders().setCacheControl(cacheControl);
+        response.getHeaders().setETag("\"" + body + "\"");
+        return response;
+    }
+
+    private static void await(Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.call()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    static class MutableClock extends Clock {
+
+        private volatile Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
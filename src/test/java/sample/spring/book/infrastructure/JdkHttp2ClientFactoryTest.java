@@ -0,0 +1,64 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.JdkHttp2ClientFactory;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class JdkHttp2ClientFactoryTest {
+
+    private final JdkHttp2ClientFactory http2 = new JdkHttp2ClientFactory();
+
+    private int port;
+
+    private BookClient http2Client;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        this.port = port;
+
+        RestTemplate restTemplate = TestClients.restTemplate(port);
+        restTemplate.setRequestFactory(http2.create());
+        this.http2Client = new BookClientRestTemplateAdapter(restTemplate);
+    }
+
+    @Test
+    void testUpgradeToH2c() throws Exception {
+
+        HttpClient httpClient = http2.getHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/books/1")).build();
+
+        HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+    }
+
+    @Test
+    void testBookClientOverH2c() {
+
+        // 同じHttpClient(1本の接続を多重化)で続けて呼び出せること
+        assertThat(http2Client.get(1)).map(Book::getId).contains(1);
+        assertThat(http2Client.getAll()).extracting(Book::getId).containsExactly(1, 2, 3);
+        assertThat(http2Client.findByAuthorStartingWith("司馬")).extracting(Book::getId).containsExactly(1, 2);
+    }
+}
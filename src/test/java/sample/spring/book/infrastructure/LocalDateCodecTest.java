@@ -0,0 +1,71 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import sample.spring.book.infrastructure.component.LocalDateCodec;
+
+public class LocalDateCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "yyyy.MM.dd", "yyyyMMdd", "uuuu-MM-dd", "dd/MM/yyyy" })
+    void testFixedWidthSameAsFormatter(String pattern) {
+
+        LocalDateCodec codec = LocalDateCodec.of(pattern);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+        assertThat(codec.isFixedWidth()).isTrue();
+
+        for (LocalDate date = LocalDate.of(1999, 12, 1); date.getYear() < 2001; date = date.plusDays(1)) {
+            String text = date.format(formatter);
+            assertThat(codec.format(date)).isEqualTo(text);
+            assertThat(codec.parse(text)).isEqualTo(date);
+            assertThat(codec.parse(("[" + text + "]").toCharArray(), 1, text.length())).isEqualTo(date);
+        }
+        // 固定幅に収まらない年はDateTimeFormatterで書く
+        for (LocalDate date : new LocalDate[] { LocalDate.of(12345, 1, 1), LocalDate.of(-5, 1, 1),
+                LocalDate.of(5, 1, 1) }) {
+            assertThat(codec.format(date)).isEqualTo(date.format(formatter));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "2024.02.30", "2023.02.29", "2024.04.31", "2024.13.01", "2024.00.10", "0000.01.01",
+            "2024.1.01", "+2024.01.01", "2024.02.32", "2024-02-01", "20a4.02.01", "", "+12345.01.01" })
+    void testSameResultForEdgeCases(String text) {
+
+        LocalDateCodec codec = LocalDateCodec.of("yyyy.MM.dd");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+        LocalDate expected;
+        try {
+            expected = LocalDate.parse(text, formatter);
+        } catch (DateTimeParseException e) {
+            // 不正な値はDateTimeFormatterと同じ例外になる
+            assertThatThrownBy(() -> codec.parse(text))
+                    .isInstanceOf(DateTimeParseException.class)
+                    .hasMessage(e.getMessage());
+            return;
+        }
+        // 月末を超える日はDateTimeFormatterと同じく月末に丸める
+        assertThat(codec.parse(text)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "yyyy/M/d", "dd MMM yyyy", "yyyy.MM.dd'T'", "yy.MM.dd", "yyyy.MM.dd.yyyy" })
+    void testFallbackToFormatter(String pattern) {
+
+        LocalDateCodec codec = LocalDateCodec.of(pattern);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+        LocalDate date = LocalDate.of(2024, 10, 1);
+
+        assertThat(codec.isFixedWidth()).isFalse();
+        assertThat(codec.format(date)).isEqualTo(date.format(formatter));
+        assertThat(codec.parse(date.format(formatter))).isEqualTo(LocalDate.parse(date.format(formatter), formatter));
+    }
+}
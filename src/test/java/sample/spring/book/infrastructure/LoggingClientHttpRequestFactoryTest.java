@@ -0,0 +1,155 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.AsyncHttpLogAppender;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
+import sample.spring.book.infrastructure.component.HttpLogRecord;
+import sample.spring.book.infrastructure.component.LoggingClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class LoggingClientHttpRequestFactoryTest {
+
+    private static final int MAX_BODY_BYTES = 16;
+
+    @Autowired
+    private Environment env;
+
+    @Value("${local.server.port}")
+    private int port;
+
+    private final List<HttpLogRecord> records = new CopyOnWriteArrayList<>();
+    private final AsyncHttpLogAppender appender = new AsyncHttpLogAppender(16, records::add);
+
+    private ClientHttpRequestFactory pooled;
+
+    @BeforeEach
+    void beforeEach() {
+        this.pooled = new PooledHttpComponentsFactory(HttpClientPoolProperties.from(env)).create();
+        SecurityContextHolder.getContext()
+                .setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+    }
+
+    @AfterEach
+    void afterEach() {
+        appender.close();
+    }
+
+    @Test
+    void testCaptureHeadOfResponseBody() throws Exception {
+
+        RestClient restClient = restClient(1.0);
+
+        String body = restClient.get().uri("/books").retrieve().body(String.class);
+        appender.close(); // キューに残った分を出力させる
+
+        assertThat(records).hasSize(1);
+        HttpLogRecord record = records.getFirst();
+        assertThat(record.method()).isEqualTo("GET");
+        assertThat(record.status()).isEqualTo(200);
+        // 呼び出し元は全体を受け取り、ログには先頭だけが残る
+        assertThat(record.responseBytes()).isEqualTo(body.getBytes().length);
+        assertThat(record.responseBody()).isEqualTo(body.substring(0, MAX_BODY_BYTES));
+        assertThat(record.responseTruncated()).isTrue();
+    }
+
+    @Test
+    void testStreamingUploadIsNotCaptured(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("scan.bin");
+        Files.write(file, new byte[64 * 1024]);
+
+        String actual = new BookClientRestClientAdapter(restClient(1.0)).upload(file);
+        appender.close();
+
+        assertThat(actual).isEqualTo("scan.bin");
+        HttpLogRecord record = records.getFirst();
+        // マルチパートのバイナリは内容を出さずにバイト数だけを記録する
+        assertThat(record.requestBytes()).isGreaterThan(Files.size(file));
+        assertThat(record.requestBody()).isNull();
+        assertThat(record.requestHeaders().getContentLength()).isEqualTo(-1);
+        assertThat(record.format()).contains("Request Body (" + record.requestBytes() + " bytes): [not logged]");
+    }
+
+    @Test
+    void testSampling() throws Exception {
+
+        LoggingClientHttpRequestFactory factory = new LoggingClientHttpRequestFactory(pooled, appender, 0.0,
+                MAX_BODY_BYTES);
+        ClientHttpRequest request = factory.createRequest(URI.create("http://localhost:" + port + "/books"),
+                HttpMethod.GET);
+
+        // 対象外のリクエストはラップされない
+        assertThat(request.getClass()).isEqualTo(
+                pooled.createRequest(URI.create("http://localhost:" + port + "/books"), HttpMethod.GET).getClass());
+
+        RestClient restClient = restClient(0.0);
+        for (int i = 0; i < 10; i++) {
+            restClient.get().uri("/books/{id}", 1).retrieve().toBodilessEntity();
+        }
+        appender.close();
+
+        assertThat(records).isEmpty();
+    }
+
+    @Test
+    void testDropWhenQueueIsFull() {
+
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncHttpLogAppender blocked = new AsyncHttpLogAppender(1, record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })) {
+            // 出力スレッドが詰まっていても呼び出し元はブロックされない
+            HttpLogRecord record = new HttpLogRecord("GET", URI.create("/books"), new HttpHeaders(), null, 0, false,
+                    200, null, null, 0, false, 0, null);
+            for (int i = 0; i < 10; i++) {
+                blocked.append(record);
+            }
+            assertThat(blocked.getDropped()).isGreaterThanOrEqualTo(8);
+            release.countDown();
+        }
+    }
+
+    private RestClient restClient(double sampleRate) {
+        return RestClient.builder()
+                .requestFactory(new LoggingClientHttpRequestFactory(pooled, appender, sampleRate, MAX_BODY_BYTES))
+                .baseUrl("http://localhost:" + port)
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInitializer(new PropagateUserContextInitializer())
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.DelegatingClientHttpRequest;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
+import sample.spring.book.infrastructure.component.LoggingClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.MetricsClientHttpRequestFactory;
+import sample.spring.book.infrastructure.component.MetricsInterceptor;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class MetricsClientHttpRequestFactoryTest {
+
+    @Autowired
+    private Environment env;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // 実際に送信するリクエストにボディがどう渡されたか
+    private final AtomicBoolean streamed = new AtomicBoolean();
+    private final AtomicReference<HttpHeaders> sentHeaders = new AtomicReference<>();
+
+    private BookClient client;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        ClientHttpRequestFactory pooled = new PooledHttpComponentsFactory(HttpClientPoolProperties.from(env)).create();
+        ClientHttpRequestFactory requestFactory = new MetricsClientHttpRequestFactory(
+                new LoggingClientHttpRequestFactory(new RecordingClientHttpRequestFactory(pooled)),
+                registry);
+
+        RestClient restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl("http://localhost:" + port)
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInitializer(new PropagateUserContextInitializer())
+                .build();
+
+        this.client = new BookClientRestClientAdapter(restClient);
+
+        SecurityContextHolder.getContext()
+                .setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+    }
+
+    @Test
+    void testStreamingUpload(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("scan.bin");
+        Files.write(file, new byte[512 * 1024]);
+
+        String actual = client.upload(file);
+
+        assertThat(actual).isEqualTo("scan.bin");
+        // デコレーターを重ねてもボディはbyte[]にまとめられず、長さ不明(chunked)のまま送信される
+        assertThat(streamed).isTrue();
+        assertThat(sentHeaders.get().getContentLength()).isEqualTo(-1);
+        assertThat(registry.get(MetricsInterceptor.REQUEST_SIZE).tag("uri", "/books/upload").summary().totalAmount())
+                .isGreaterThan(Files.size(file));
+        assertThat(registry.get(MetricsInterceptor.REQUESTS)
+                .tags("method", "POST", "uri", "/books/upload", "status", "200")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testRecordResponseSize() {
+
+        client.download("mz-tech-logo-small.png");
+
+        assertThat(streamed).isFalse();
+        assertThat(registry.get(MetricsInterceptor.RESPONSE_SIZE).tag("uri", "/books/files/{filename}").summary().totalAmount())
+                .isPositive();
+    }
+
+    // ラップ元のリクエストにsetBodyで渡されたかと、送信時のヘッダーを記録する
+    private class RecordingClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+        private final ClientHttpRequestFactory delegate;
+
+        RecordingClientHttpRequestFactory(ClientHttpRequestFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+            return new DelegatingClientHttpRequest(delegate.createRequest(uri, httpMethod)) {
+
+                @Override
+                public void setBody(Body body) {
+                    streamed.set(true);
+                    super.setBody(body);
+                }
+
+                @Override
+                public ClientHttpResponse execute() throws IOException {
+                    sentHeaders.set(HttpHeaders.readOnlyHttpHeaders(getHeaders()));
+                    return super.execute();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.MetricsInterceptor;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class MetricsInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private BookClient metricsClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        RestTemplate restTemplate = TestClients.restTemplate(port);
+        restTemplate.getInterceptors().add(new MetricsInterceptor(registry));
+        restTemplate.setErrorHandler(new BookResponseErrorHandler(registry));
+
+        this.metricsClient = new BookClientRestTemplateAdapter(restTemplate);
+    }
+
+    @Test
+    void testRecordByUriTemplate() {
+
+        metricsClient.get(1);
+        metricsClient.get(2);
+        metricsClient.getAll();
+
+        // 展開後のURIではなくテンプレート単位で集計される
+        Timer byId = registry.get(MetricsInterceptor.REQUESTS)
+                .tags("method", "GET", "uri", "/books/{id}", "status", "200", "outcome", "SUCCESS")
+                .timer();
+        assertThat(byId.count()).isEqualTo(2);
+        assertThat(registry.get(MetricsInterceptor.REQUESTS).tag("uri", "/books").timer().count()).isEqualTo(1);
+        assertThat(registry.get(MetricsInterceptor.RESPONSE_SIZE).tag("uri", "/books/{id}").summary().totalAmount())
+                .isPositive();
+    }
+
+    @Test
+    void testCountMappedException() {
+
+        SecurityContextHolder.getContext()
+                .setAuthentication(new TestingAuthenticationToken("ID0001", "test", "MEMBER"));
+
+        assertThatThrownBy(() -> metricsClient.delete(999))
+                .isInstanceOf(NotFoundException.class);
+
+        assertThat(registry.get(BookResponseErrorHandler.ERRORS)
+                .tags("status", "404", "exception", "NotFoundException")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get(MetricsInterceptor.REQUESTS)
+                .tags("method", "DELETE", "uri", "/books/{id}", "outcome", "CLIENT_ERROR")
+                .timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,90 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.HttpClientPoolProperties;
+import sample.spring.book.infrastructure.component.PooledHttpComponentsFactory;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class PooledHttpComponentsFactoryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private BookClient pooledClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        // リース待ちが発生するようプールを小さくする
+        HttpClientPoolProperties properties = new HttpClientPoolProperties();
+        properties.setMaxTotal(2);
+        properties.setMaxPerRoute(2);
+
+        RestTemplate restTemplate = TestClients.restTemplate(port);
+        restTemplate.setRequestFactory(new PooledHttpComponentsFactory(properties, registry, "test").create());
+
+        this.pooledClient = new BookClientRestTemplateAdapter(restTemplate);
+    }
+
+    @Test
+    void testPoolMetrics() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> pooledClient.get(1)));
+            }
+        }
+        for (Future<Optional<Book>> future : futures) {
+            assertThat(future.get()).isPresent();
+        }
+
+        assertThat(registry.get(PooledHttpComponentsFactory.LEASE).tag("pool", "test").timer().count())
+                .isEqualTo(futures.size());
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.max").tag("httpclient", "test").gauge().value())
+                .isEqualTo(2);
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.connections")
+                .tags("httpclient", "test", "state", "leased").gauge().value())
+                .isZero();
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.pending").tag("httpclient", "test").gauge()
+                .value()).isZero();
+    }
+
+    @Test
+    void testBindProperties() {
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("book.client.pool.max-total", "300")
+                .withProperty("book.client.pool.lease-timeout", "500ms");
+
+        HttpClientPoolProperties properties = HttpClientPoolProperties.from(env);
+
+        assertThat(properties.getMaxTotal()).isEqualTo(300);
+        assertThat(properties.getLeaseTimeout()).hasMillis(500);
+        assertThat(properties.getMaxPerRoute()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,141 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+import static sample.spring.book.domain.BookClientTest.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.support.WebClientAdapter;
+import org.springframework.web.service.invoker.HttpServiceProxyFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.ValidationException;
+import sample.spring.book.infrastructure.component.ReactiveBookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.converter.LocalDateToStringConverter;
+import sample.spring.book.infrastructure.component.converter.StringToLocalDateConverter;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class ReactiveBookClientApiTest {
+
+    private final Book expectedBook1 = new Book(1, "燃えよ剣", "司馬遼太郎", LocalDate.of(1972, 6, 1));
+    private final Book expectedBook2 = new Book(2, "峠", "司馬遼太郎", LocalDate.of(1968, 10, 1));
+    private final Book expectedBook3 = new Book(3, "ノルウェイの森", "村上春樹", LocalDate.of(1987, 9, 4));
+
+    private ReactiveBookClientApi client;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        ObjectMapper mapper = new CustomMessageConveterFactory().createObjectMapper(LOCAL_DATE_PATTERN);
+
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new JdkClientHttpConnector())
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(mapper));
+                    configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper));
+                })
+                .defaultHeader("Sender-Name", ReactiveBookClientApi.class.getSimpleName())
+                .defaultStatusHandler(ReactiveBookResponseErrorHandler.PREDICATE, new ReactiveBookResponseErrorHandler())
+                .build();
+
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(new LocalDateToStringConverter(LOCAL_DATE_PATTERN));
+        conversionService.addConverter(new StringToLocalDateConverter(LOCAL_DATE_PATTERN));
+
+        HttpServiceProxyFactory factory = HttpServiceProxyFactory
+                .builderFor(WebClientAdapter.create(webClient))
+                .conversionService(conversionService)
+                .build();
+
+        this.client = factory.createClient(ReactiveBookClientApi.class);
+    }
+
+    @Test
+    void testGet() {
+
+        Book actual = client.get(1).map(BookResponse::toModel).block();
+        assertThat(actual).isEqualTo(expectedBook1);
+
+        assertThat(client.get(999).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void testGetAll() {
+
+        List<Book> actual = client.getAll()
+                .map(BookResponse::toModel)
+                .collectList()
+                .block();
+
+        assertThat(actual).containsExactly(expectedBook1, expectedBook2, expectedBook3);
+    }
+
+    @Test
+    void testGetByIds() {
+
+        List<Book> actual = client.getByIds(List.of(3, 999, 1))
+                .map(BookResponse::toModel)
+                .collectList()
+                .block();
+
+        assertThat(actual).containsExactly(expectedBook3, expectedBook1);
+    }
+
+    @Test
+    void testFindByCondition() {
+
+        List<Book> actual = client.findByCondition(Map.of("author", "司馬遼太郎"))
+                .map(BookResponse::toModel)
+                .collectList()
+                .block();
+
+        assertThat(actual).containsExactly(expectedBook1, expectedBook2);
+    }
+
+    @Test
+    void testFindByAuthorStartingWith() {
+
+        // take(1)で先頭要素だけを受け取ったら残りはキャンセルされる
+        Book actual = client.findByAuthorStartingWith("司馬")
+                .map(BookResponse::toModel)
+                .take(1)
+                .blockFirst();
+
+        assertThat(actual).isEqualTo(expectedBook1);
+    }
+
+    @Test
+    void testPathParamLocalDate() {
+        assertThat(client.pathParamLocalDate(LocalDate.of(2024, 10, 1)).block()).isEqualTo("2024.10.01");
+    }
+
+    @Test
+    void testQueryParamLocalDate() {
+        assertThat(client.queryParamLocalDate(LocalDate.of(2024, 10, 1)).block()).isEqualTo("2024.10.01");
+    }
+
+    @Test
+    void testValidationError() {
+        assertThatThrownBy(() -> client.findByAuthorStartingWith("").collectList().block())
+                .isInstanceOf(ValidationException.class);
+    }
+}
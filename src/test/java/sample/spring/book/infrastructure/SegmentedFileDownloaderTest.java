@@ -0,0 +1,209 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.exception.NotFoundException;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class SegmentedFileDownloaderTest {
+
+    private static final String FILENAME = "mz-tech-logo-small.png";
+
+    // 送信したRangeヘッダー
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+    // trueの間は最初のRange指定のレスポンスを途中で切断する
+    private final AtomicBoolean breakFirstRange = new AtomicBoolean();
+    private final AtomicReference<String> brokenRange = new AtomicReference<>();
+    // trueの間はすべてのRange指定のレスポンスを途中で切断する
+    private final AtomicBoolean breakAllRanges = new AtomicBoolean();
+
+    private RestClient restClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+        this.restClient = RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInterceptor((request, body, execution) -> {
+                    String range = request.getHeaders().getFirst(HttpHeaders.RANGE);
+                    if (range == null) {
+                        return execution.execute(request, body);
+                    }
+                    ranges.add(range);
+                    ClientHttpResponse response = execution.execute(request, body);
+                    if (breakFirstRange.getAndSet(false) || breakAllRanges.get()) {
+                        brokenRange.set(range);
+                        return new BrokenResponse(response, 100);
+                    }
+                    return response;
+                })
+                .build();
+    }
+
+    @Test
+    void testDownloadInSegments(@TempDir Path dir) throws Exception {
+
+        SegmentedFileDownloader downloader = new SegmentedFileDownloader(restClient, 4, 1, 0);
+        Path target = dir.resolve("logo.png");
+
+        long actual = downloader.download(FILENAME, target);
+
+        byte[] expected = new ClassPathResource(FILENAME).getContentAsByteArray();
+        assertThat(actual).isEqualTo(expected.length);
+        assertThat(Files.readAllBytes(target)).isEqualTo(expected);
+        assertThat(ranges).hasSize(4);
+    }
+
+    @Test
+    void testResumeBrokenSegment(@TempDir Path dir) throws Exception {
+
+        SegmentedFileDownloader downloader = new SegmentedFileDownloader(restClient, 2, 1, 1);
+        Path target = dir.resolve("logo.png");
+        breakFirstRange.set(true);
+
+        downloader.download(FILENAME, target);
+
+        byte[] expected = new ClassPathResource(FILENAME).getContentAsByteArray();
+        assertThat(Files.readAllBytes(target)).isEqualTo(expected);
+
+        // 切断された区間だけを、書き込めた100バイトの続きから再開する
+        String[] broken = brokenRange.get().substring("bytes=".length()).split("-");
+        String resumed = "bytes=" + (Long.parseLong(broken[0]) + 100) + "-" + broken[1];
+        assertThat(ranges).hasSize(3).contains(resumed);
+    }
+
+    @Test
+    void testKeepTargetWhenSegmentFails(@TempDir Path dir) throws Exception {
+
+        SegmentedFileDownloader downloader = new SegmentedFileDownloader(restClient, 2, 1, 1);
+        Path target = dir.resolve("logo.png");
+        Files.writeString(target, "previous");
+        breakAllRanges.set(true);
+
+        assertThatThrownBy(() -> downloader.download(FILENAME, target))
+                .isInstanceOf(ResourceAccessException.class);
+
+        // 再開の上限を超えた場合、穴の空いたファイルでtargetを上書きせず、一時ファイルも残さない
+        assertThat(Files.readString(target)).isEqualTo("previous");
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).containsExactly(target);
+        }
+    }
+
+    @Test
+    void testSmallFileWithoutRange(@TempDir Path dir) throws Exception {
+
+        SegmentedFileDownloader downloader = new SegmentedFileDownloader(restClient);
+        Path target = dir.resolve("logo.png");
+
+        downloader.download(FILENAME, target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(new ClassPathResource(FILENAME).getContentAsByteArray());
+        assertThat(ranges).isEmpty();
+    }
+
+    @Test
+    void testPartialContent() {
+
+        ResponseEntity<byte[]> actual = restClient.get()
+                .uri("/books/files/{filename}", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=10-19")
+                .retrieve()
+                .toEntity(byte[].class);
+
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(actual.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(actual.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).startsWith("bytes 10-19/");
+        assertThat(actual.getBody()).hasSize(10);
+    }
+
+    @Test
+    void testNotFound(@TempDir Path dir) throws Exception {
+        SegmentedFileDownloader downloader = new SegmentedFileDownloader(restClient);
+        assertThatThrownBy(() -> downloader.download("not-found.png", dir.resolve("not-found.png")))
+                .isInstanceOf(NotFoundException.class);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    // 指定したバイト数を読んだところで通信断を模してIOExceptionを投げる
+    private static class BrokenResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final int limit;
+
+        BrokenResponse(ClientHttpResponse delegate, int limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return new FilterInputStream(delegate.getBody()) {
+                private int count;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (count >= limit) {
+                        throw new IOException("connection reset");
+                    }
+                    int n = super.read(b, off, Math.min(len, limit - count));
+                    count += Math.max(n, 0);
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
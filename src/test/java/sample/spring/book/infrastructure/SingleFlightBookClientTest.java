@@ -0,0 +1,102 @@
+package sample.spring.book.infrastructure;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import sample.spring.book.domain.Book;
+import sample.spring.book.domain.BookClient;
+import sample.spring.book.domain.BookClientTest;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class SingleFlightBookClientTest {
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    // 実際に通信した時点の認証情報のprincipal(未認証はnull)
+    private final List<Object> requestPrincipals = new CopyOnWriteArrayList<>();
+
+    private SingleFlightBookClient singleFlightClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+
+        SecurityContextHolder.clearContext();
+
+        // 通信中の呼び出しが重なるよう応答を遅らせ、実際の通信回数を数える
+        BookClient slow = new DelegatingBookClient(TestClients.restClientAdapter(port)) {
+            @Override
+            public Optional<Book> get(int id) {
+                requestCount.incrementAndGet();
+                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                requestPrincipals.add(auth != null ? auth.getPrincipal() : null);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.get(id);
+            }
+        };
+
+        this.singleFlightClient = new SingleFlightBookClient(slow);
+    }
+
+    @Test
+    void testCollapseConcurrentGet() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                futures.add(executor.submit(() -> singleFlightClient.get(1)));
+            }
+        }
+
+        for (Future<Optional<Book>> future : futures) {
+            assertThat(future.get().map(Book::getId)).contains(1);
+        }
+        assertThat(requestCount.get()).isLessThan(futures.size());
+        assertThat(singleFlightClient.getCallCount()).isEqualTo(futures.size());
+        assertThat(singleFlightClient.getCollapsedCount()).isEqualTo(futures.size() - requestCount.get());
+    }
+
+    @Test
+    void testNotCollapseDifferentCallers() throws Exception {
+
+        List<Future<Optional<Book>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String userId : List.of("ID0001", "ID0002")) {
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext()
+                            .setAuthentication(new TestingAuthenticationToken(userId, "test", "MEMBER"));
+                    return singleFlightClient.get(1);
+                }));
+            }
+        }
+
+        for (Future<Optional<Book>> future : futures) {
+            assertThat(future.get().map(Book::getId)).contains(1);
+        }
+        // 同時に呼ばれても、ユーザーが異なれば相乗りせずそれぞれの認証情報で通信する
+        assertThat(requestCount.get()).isEqualTo(2);
+        assertThat(requestPrincipals).containsExactlyInAnyOrder("ID0001", "ID0002");
+        assertThat(singleFlightClient.getCollapsedCount()).isZero();
+    }
+}
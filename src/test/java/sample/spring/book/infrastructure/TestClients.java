@@ -0,0 +1,49 @@
+package sample.spring.book.infrastructure;
+
+import java.util.List;
+
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import sample.spring.book.domain.BookClientTest;
+import sample.spring.book.infrastructure.component.BookResponseErrorHandler;
+import sample.spring.book.infrastructure.component.FanOutExecutor;
+import sample.spring.book.infrastructure.component.PropagateUserContextInitializer;
+import sample.spring.book.infrastructure.component.jackson.CustomMessageConveterFactory;
+
+// デコレーターや通信路のテストで使う、スタブサーバーに繋いだクライアント
+final class TestClients {
+
+    private TestClients() {
+    }
+
+    static RestTemplate restTemplate(int port) {
+
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory("http://localhost:" + port));
+        restTemplate.setClientHttpRequestInitializers(List.of(new PropagateUserContextInitializer()));
+
+        MappingJackson2HttpMessageConverter converter = new CustomMessageConveterFactory().create(BookClientTest.LOCAL_DATE_PATTERN);
+        List<HttpMessageConverter<?>> messageConverters = restTemplate.getMessageConverters();
+        messageConverters.addFirst(converter);
+        restTemplate.setMessageConverters(messageConverters);
+
+        return restTemplate;
+    }
+
+    static BookClientRestClientAdapter restClientAdapter(int port) {
+
+        RestClient restClient = RestClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .messageConverters(defaults -> defaults.addAll(0,
+                        new CustomMessageConveterFactory().createConverters(BookClientTest.LOCAL_DATE_PATTERN)))
+                .defaultStatusHandler(new BookResponseErrorHandler())
+                .requestInitializer(new PropagateUserContextInitializer())
+                .build();
+
+        return new BookClientRestClientAdapter(restClient, new FanOutExecutor(4, 2));
+    }
+}
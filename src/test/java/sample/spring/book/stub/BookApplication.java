@@ -1,25 +1,60 @@
 package sample.spring.book.stub;
 
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.unit.DataSize;
 
 import ch.qos.logback.access.tomcat.LogbackValve;
 
 @SpringBootApplication
 public class BookApplication {
 
+    // 1本のHTTP/2接続で受け付ける同時ストリーム数(Tomcatのデフォルトは100)
+    static final int MAX_CONCURRENT_STREAMS = 1000;
+
     public static void main(String[] args) {
         SpringApplication.run(BookApplication.class, args);
     }
 
     @Bean
-    TomcatServletWebServerFactory servletContainer() {
+    TomcatServletWebServerFactory servletContainer(@Value("${book.access-log.enabled:true}") boolean accessLog) {
         TomcatServletWebServerFactory tomcatServletWebServerFactory = new TomcatServletWebServerFactory();
-        LogbackValve valve = new LogbackValve();
-        valve.setFilename(LogbackValve.DEFAULT_FILENAME);
-        tomcatServletWebServerFactory.addContextValves(valve);
+        if (accessLog) { // ベンチマークではリクエスト毎のコンソール出力が計測を歪めるためOFFにする
+            LogbackValve valve = new LogbackValve();
+            valve.setFilename(LogbackValve.DEFAULT_FILENAME);
+            tomcatServletWebServerFactory.addContextValves(valve);
+        }
+        // h2c(平文のHTTP/2)へのUpgradeを受け付ける
+        tomcatServletWebServerFactory.addConnectorCustomizers(connector -> {
+            Http2Protocol http2 = new Http2Protocol();
+            http2.setMaxConcurrentStreams(MAX_CONCURRENT_STREAMS);
+            http2.setMaxConcurrentStreamExecution(MAX_CONCURRENT_STREAMS);
+            connector.addUpgradeProtocol(http2);
+        });
         return tomcatServletWebServerFactory;
     }
+
+    // Accept-Encoding: gzipを送ってきたクライアントには、閾値以上のJSON/CBORをgzipで返す
+    // (TomcatはstrongなETagが付いたレスポンスは圧縮しない)。
+    // server.compressionを反映するServletWebServerFactoryCustomizerより後に適用されるよう@Orderは付けない
+    @Bean
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> compressionCustomizer(
+            @Value("${book.compression.min-response-size:2KB}") DataSize minResponseSize) {
+        return factory -> {
+            Compression compression = new Compression();
+            compression.setEnabled(true);
+            compression.setMinResponseSize(minResponseSize);
+            compression.setMimeTypes(ObjectUtils.addObjectToArray(compression.getMimeTypes(),
+                    MediaType.APPLICATION_CBOR_VALUE));
+            factory.setCompression(compression);
+        };
+    }
 }
@@ -1,9 +1,21 @@
 package sample.spring.book.stub;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import jakarta.validation.groups.Default;
@@ -11,6 +23,7 @@ import jakarta.validation.groups.Default;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -27,10 +40,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import lombok.RequiredArgsConstructor;
 import sample.spring.book.stub.BookServerModel.Update;
 import sample.spring.book.stub.exception.DuplicateServerException;
 import sample.spring.book.stub.exception.ExceptionHandled;
+import sample.spring.book.stub.exception.InvalidRequestServerException;
 import sample.spring.book.stub.exception.NotFoundServerException;
 
 @RestController
@@ -39,29 +55,79 @@ import sample.spring.book.stub.exception.NotFoundServerException;
 @RequiredArgsConstructor
 public class BookController {
 
+    public static final int MAX_BATCH_SIZE = 500;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final CacheControl CACHE_CONTROL = CacheControl
+            .maxAge(Duration.ofSeconds(5))
+            .staleWhileRevalidate(Duration.ofSeconds(30));
+
     private final ObjectProvider<BookRepository> repository; // for prototype
+    private final ChunkedUploadStore uploadStore;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{id}")
-    public BookServerModel get(@PathVariable int id) {
-        return repository.getObject().get(id).orElse(null);
+    public ResponseEntity<BookServerModel> get(@PathVariable int id) {
+        return repository.getObject().get(id)
+                .map(book -> cacheable(book))
+                .orElseGet(() -> ResponseEntity.ok().build());
+    }
+
+    // 一覧はAcceptに応じてJSONかCBOR(バイナリ)で返す
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<List<BookServerModel>> getAll() {
+        return cacheable(repository.getObject().findAll());
     }
 
-    @GetMapping
-    public List<BookServerModel> getAll() {
-        return repository.getObject().findAll();
+    @GetMapping(params = "ids", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public List<BookServerModel> getByIds(@Size(max = MAX_BATCH_SIZE) @RequestParam("ids") List<Integer> ids) {
+        return repository.getObject().findByIds(ids);
     }
 
-    @GetMapping("/search")
+    @GetMapping(path = "/search", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
     public List<BookServerModel> findByCondition(@RequestParam Map<String, String> queryParams) {
         return repository.getObject().findByCondition(queryParams);
     }
 
-    @GetMapping("/author")
+    @GetMapping(path = "/author", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
     public List<BookServerModel> findByAuthorStartingWith(
             @NotBlank @Size(max = 10) @RequestParam("prefix") String prefix) {
         return repository.getObject().findByAuthorStartingWith(prefix);
     }
 
+    // ページング版の一覧: limit件ずつidの昇順で返し、続きはnextのカーソルをafterに指定して取得する
+    // idsとlimitの両方が付いた場合はidsの一括取得として扱う(両方にマッチすると曖昧なマッピングで500になる)
+    @GetMapping(params = { "limit", "!ids" },
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public BookPageServerModel getAllPage(@Min(1) @Max(MAX_PAGE_SIZE) @RequestParam("limit") int limit,
+            @RequestParam(name = "after", required = false) String after) {
+        return page(limit, after, (afterId, size) -> repository.getObject().findAll(afterId, size));
+    }
+
+    @GetMapping(path = "/search", params = "limit",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public BookPageServerModel findByConditionPage(@RequestParam Map<String, String> queryParams,
+            @Min(1) @Max(MAX_PAGE_SIZE) @RequestParam("limit") int limit,
+            @RequestParam(name = "after", required = false) String after) {
+
+        // ページングのパラメーターは検索条件に含めない
+        Map<String, String> condition = new HashMap<>(queryParams);
+        condition.remove("limit");
+        condition.remove("after");
+
+        return page(limit, after, (afterId, size) -> repository.getObject().findByCondition(condition, afterId, size));
+    }
+
+    @GetMapping(path = "/author", params = "limit",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public BookPageServerModel findByAuthorStartingWithPage(
+            @NotBlank @Size(max = 10) @RequestParam("prefix") String prefix,
+            @Min(1) @Max(MAX_PAGE_SIZE) @RequestParam("limit") int limit,
+            @RequestParam(name = "after", required = false) String after) {
+        return page(limit, after,
+                (afterId, size) -> repository.getObject().findByAuthorStartingWith(prefix, afterId, size));
+    }
+
     @PostMapping
     public BookServerModel add(@RequestBody @Validated BookServerModel book) throws DuplicateServerException {
         return repository.getObject().save(book);
@@ -83,6 +149,23 @@ public class BookController {
         return file.getOriginalFilename();
     }
 
+    // 分割アップロード: 開始 -> チャンクをオフセット指定でPUT(順不同・再送可) -> 完了
+    @PostMapping("/uploads")
+    public UploadServerModel initiateUpload(@RequestBody @Validated UploadServerModel request) {
+        return uploadStore.initiate(request);
+    }
+
+    @PutMapping(path = "/uploads/{uploadId}/chunks/{offset}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void uploadChunk(@PathVariable String uploadId, @PathVariable long offset, InputStream body)
+            throws IOException {
+        uploadStore.write(uploadId, offset, body);
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public String completeUpload(@PathVariable String uploadId) {
+        return uploadStore.complete(uploadId);
+    }
+
     @GetMapping("/files/{filename:.+}")
     ResponseEntity<Resource> download(@PathVariable String filename) {
 
@@ -100,6 +183,8 @@ public class BookController {
         headers.setContentDisposition(cd);
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
 
+        // ボディがResourceの場合、Spring MVCがAccept-Rangesを付け、Rangeの指定があれば
+        // 206(ResourceRegion)や416に変換して返す(分割ダウンロードはこれを利用する)
         return ResponseEntity.ok().headers(headers).body(resource);
     }
 
@@ -117,4 +202,59 @@ public class BookController {
     public BookServerModel badResponse() {
         return new BookServerModel(999, null, null, null);
     }
+
+    // 1件多く取得して次のページの有無を判断する(最後のページでもう1往復させない)
+    private BookPageServerModel page(int limit, String after,
+            BiFunction<Integer, Integer, List<BookServerModel>> finder) {
+
+        List<BookServerModel> found = finder.apply(afterId(after), limit + 1);
+        if (found.size() <= limit) {
+            return new BookPageServerModel(found, null);
+        }
+        List<BookServerModel> items = found.subList(0, limit);
+        return new BookPageServerModel(items, cursor(items.getLast().getId()));
+    }
+
+    // カーソルはページ末尾のidを符号化したもの。クライアントは中身を解釈せず、そのままafterに渡す
+    private static String cursor(int id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Integer afterId(String after) {
+        if (after == null || after.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            if (decoded.startsWith("id:")) {
+                return Integer.valueOf(decoded.substring("id:".length()));
+            }
+        } catch (IllegalArgumentException e) { // NumberFormatExceptionを含む
+            // 下で不正なカーソルとして扱う
+        }
+        throw new InvalidRequestServerException("invalid cursor =>" + after);
+    }
+
+    // 内容から作ったETagとCache-Controlを付ける。If-None-Matchが一致した場合はSpring MVCが304を返す。
+    // AcceptによってJSONとCBORを返し分けるため、キャッシュにはVary: Acceptで知らせる。
+    // 同じ内容でも形式や圧縮によってバイト列は変わるため、ETagはweakにする(strongだとTomcatが圧縮しない)
+    private <T> ResponseEntity<T> cacheable(T body) {
+        return ResponseEntity.ok()
+                .eTag("W/\"" + digest(body) + "\"")
+                .cacheControl(CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    // hashCodeは内容が違っても衝突して更新前の内容に304を返しかねないため、JSONにしたバイト列のSHA-256を使う
+    private String digest(Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256はすべてのJava実装で必須のため起きない
+        }
+    }
 }
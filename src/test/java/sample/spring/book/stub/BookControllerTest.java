@@ -0,0 +1,54 @@
+package sample.spring.book.stub;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestClient;
+
+import sample.spring.book.domain.BookClientTest;
+
+@SpringBootTest(classes = BookClientTest.TestConfig.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class BookControllerTest {
+
+    private RestClient restClient;
+
+    @BeforeEach
+    void beforeEach(@Value("${local.server.port}") int port) {
+        this.restClient = RestClient.create("http://localhost:" + port);
+    }
+
+    @Test
+    void testIdsWithLimit() {
+
+        // idsとlimitの両方を付けても曖昧なマッピングにならず、idsの一括取得になる
+        ResponseEntity<List<BookServerModel>> actual = restClient.get()
+                .uri("/books?ids={ids}&limit={limit}", "1,3", 1)
+                .retrieve()
+                .toEntity(new ParameterizedTypeReference<>() {});
+
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(actual.getBody()).extracting(BookServerModel::getId).containsExactly(1, 3);
+    }
+
+    @Test
+    void testLimitOnly() {
+
+        BookPageServerModel actual = restClient.get()
+                .uri("/books?limit={limit}", 2)
+                .retrieve()
+                .body(BookPageServerModel.class);
+
+        assertThat(actual.items()).extracting(BookServerModel::getId).containsExactly(1, 2);
+    }
+}
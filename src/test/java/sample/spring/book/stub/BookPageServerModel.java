@@ -0,0 +1,9 @@
+package sample.spring.book.stub;
+
+import java.util.List;
+
+// カーソルによるページングの応答。nextは次のページのカーソル(最後のページではnull)
+public record BookPageServerModel(
+        List<BookServerModel> items,
+        String next) {
+}
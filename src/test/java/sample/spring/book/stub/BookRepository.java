@@ -1,5 +1,6 @@
 package sample.spring.book.stub;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -13,10 +14,20 @@ public interface BookRepository {
 
     List<BookServerModel> findAll();
 
+    List<BookServerModel> findByIds(Collection<Integer> ids);
+
     List<BookServerModel> findByCondition(Map<String, String> condition);
 
     List<BookServerModel> findByAuthorStartingWith(String prefix);
 
+    // 以下のページング用の検索は、idの昇順でafterIdより後ろ(nullの場合は先頭)からlimit件を返す
+
+    List<BookServerModel> findAll(Integer afterId, int limit);
+
+    List<BookServerModel> findByCondition(Map<String, String> condition, Integer afterId, int limit);
+
+    List<BookServerModel> findByAuthorStartingWith(String prefix, Integer afterId, int limit);
+
     BookServerModel save(BookServerModel entty) throws DuplicateServerException, NotFoundServerException;
 
     void remove(int id) throws NotFoundServerException;
@@ -0,0 +1,191 @@
+package sample.spring.book.stub;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import sample.spring.book.stub.exception.InvalidRequestServerException;
+import sample.spring.book.stub.exception.NotFoundServerException;
+
+// 分割アップロードされたチャンクを一時ファイルの該当位置に書き込んで組み立てる。
+// チャンクは何度送り直してもよく(PUTは冪等)、全チャンクが揃った時点でcompleteできる。
+// 一時ファイルは放棄されたアップロードや、上限を超えて押し出された完了済みのファイルを捨てる時に消す
+@Component
+public class ChunkedUploadStore {
+
+    public static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    // 完了済みのファイルはテストで確かめられるよう直近のものだけを残す
+    public static final int MAX_COMPLETED = 16;
+    // この間チャンクもcompleteも届かないアップロードは放棄されたものとして捨てる
+    public static final Duration ABANDON_TIMEOUT = Duration.ofMinutes(10);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Assembly> assemblies = new ConcurrentHashMap<>();
+
+    // 組み立てが完了したファイル(ファイル名 -> 一時ファイル)。completedのロックで守る
+    private final Map<String, Path> completed = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+            if (size() <= MAX_COMPLETED) {
+                return false;
+            }
+            deleteQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    public UploadServerModel initiate(UploadServerModel request) {
+
+        // 定期的に掃除するスレッドは持たず、新しいアップロードを始める時に放棄されたものを捨てる
+        abandonIdle(ABANDON_TIMEOUT);
+
+        // クライアントの希望より大きなチャンクは受け付けない(応答のchunkSizeで送ってもらう)
+        int chunkSize = Math.min(request.chunkSize(), MAX_CHUNK_SIZE);
+        UploadServerModel session = new UploadServerModel(UUID.randomUUID().toString(), request.filename(),
+                request.size(), chunkSize);
+
+        try {
+            Path file = Files.createTempFile("upload-", ".part");
+            file.toFile().deleteOnExit();
+            assemblies.put(session.uploadId(), new Assembly(session, file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return session;
+    }
+
+    public void write(String uploadId, long offset, InputStream body) throws IOException {
+
+        Assembly assembly = find(uploadId);
+        UploadServerModel session = assembly.session;
+
+        if (offset < 0 || offset >= session.size() || offset % session.chunkSize() != 0) {
+            throw new InvalidRequestServerException("invalid chunk offset =>" + offset);
+        }
+        long expected = Math.min(session.chunkSize(), session.size() - offset);
+
+        try (FileChannel channel = FileChannel.open(assembly.file, WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            int read;
+            // チャンクより長いボディは書き込む前に弾く
+            while ((read = body.read(buffer, 0, (int) Math.min(BUFFER_SIZE, expected - written + 1))) > 0) {
+                if (written + read > expected) {
+                    throw new InvalidRequestServerException("chunk is larger than " + expected + " bytes");
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, offset + written);
+                }
+            }
+            if (written != expected) {
+                throw new InvalidRequestServerException("chunk is shorter than " + expected + " bytes =>" + written);
+            }
+        }
+        // 全体を書き込めたチャンクだけを受信済みにする
+        assembly.received(offset / session.chunkSize());
+    }
+
+    public String complete(String uploadId) {
+
+        Assembly assembly = find(uploadId);
+        int missing = assembly.missingChunks();
+        if (missing > 0) {
+            throw new InvalidRequestServerException(missing + " chunks are missing");
+        }
+        // 同じuploadIdのcompleteが重なった場合に、登録済みのファイルを置き換え扱いで消さないようにする
+        if (!assemblies.remove(uploadId, assembly)) {
+            throw new NotFoundServerException("upload not found. uploadId:" + uploadId);
+        }
+
+        Path replaced;
+        synchronized (completed) {
+            replaced = completed.put(assembly.session.filename(), assembly.file);
+        }
+        // 同じファイル名で送り直された場合は前のファイルを消す
+        if (replaced != null) {
+            deleteQuietly(replaced);
+        }
+        return assembly.session.filename();
+    }
+
+    public Optional<Path> getCompleted(String filename) {
+        synchronized (completed) {
+            return Optional.ofNullable(completed.get(filename));
+        }
+    }
+
+    public Optional<Path> getInProgress(String uploadId) {
+        return Optional.ofNullable(assemblies.get(uploadId)).map(assembly -> assembly.file);
+    }
+
+    // idleの間アクセスのないアップロードを一時ファイルごと捨てる
+    public void abandonIdle(Duration idle) {
+        long threshold = System.nanoTime() - idle.toNanos();
+        for (Assembly assembly : assemblies.values()) {
+            if (assembly.lastAccessNanos - threshold <= 0
+                    && assemblies.remove(assembly.session.uploadId(), assembly)) {
+                deleteQuietly(assembly.file);
+            }
+        }
+    }
+
+    private Assembly find(String uploadId) {
+        Assembly assembly = assemblies.get(uploadId);
+        if (assembly == null) {
+            throw new NotFoundServerException("upload not found. uploadId:" + uploadId);
+        }
+        assembly.lastAccessNanos = System.nanoTime();
+        return assembly;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // 消せなかった場合はdeleteOnExitに任せる
+        }
+    }
+
+
+    private static class Assembly {
+
+        private final UploadServerModel session;
+        private final Path file;
+        private final int chunkCount;
+        private final BitSet received;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        Assembly(UploadServerModel session, Path file) {
+            this.session = session;
+            this.file = file;
+            this.chunkCount = (int) ((session.size() + session.chunkSize() - 1) / session.chunkSize());
+            this.received = new BitSet(chunkCount);
+        }
+
+        synchronized void received(long index) {
+            received.set((int) index);
+        }
+
+        synchronized int missingChunks() {
+            return chunkCount - received.cardinality();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package sample.spring.book.stub;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+// 分割アップロードの開始要求と応答(開始要求ではuploadIdは空)
+public record UploadServerModel(
+        String uploadId,
+        @NotBlank String filename,
+        @PositiveOrZero long size,
+        @Positive int chunkSize) {
+}
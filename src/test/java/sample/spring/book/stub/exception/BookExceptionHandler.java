@@ -3,6 +3,7 @@ package sample.spring.book.stub.exception;
 import java.util.Map;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -14,11 +15,24 @@ public class BookExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(NotFoundServerException.class)
     public ResponseEntity<Map<String, String>> handleNotFoundException(NotFoundServerException e, WebRequest req) {
-        return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        return error(HttpStatus.NOT_FOUND, e);
     }
 
     @ExceptionHandler(DuplicateServerException.class)
     public ResponseEntity<Map<String, String>> handleDuplicateKeyException(DuplicateServerException e, WebRequest req) {
-        return new ResponseEntity<>(Map.of("message", e.getMessage()), HttpStatus.CONFLICT);
+        return error(HttpStatus.CONFLICT, e);
+    }
+
+    @ExceptionHandler(InvalidRequestServerException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequestException(InvalidRequestServerException e,
+            WebRequest req) {
+        return error(HttpStatus.BAD_REQUEST, e);
+    }
+
+    // クライアントのBookResponseErrorHandlerはJSONで読むため、AcceptでCBORを優先されていてもエラーはJSONで返す
+    private ResponseEntity<Map<String, String>> error(HttpStatus status, Exception e) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("message", e.getMessage()));
     }
 }
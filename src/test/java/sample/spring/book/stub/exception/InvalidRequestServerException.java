@@ -0,0 +1,8 @@
+package sample.spring.book.stub.exception;
+
+public class InvalidRequestServerException extends RuntimeException {
+
+    public InvalidRequestServerException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,17 @@
 package sample.spring.book.stub.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
 
 import jakarta.annotation.PostConstruct;
 
@@ -18,14 +25,20 @@ import sample.spring.book.stub.exception.NotFoundServerException;
 @Repository
 public class InMemoryBookRepository implements BookRepository {
 
-    private Map<Integer, BookServerModel> bookMap;
+    // idの昇順に並べておき、一覧やページングで並べ替えずに済むようにする
+    private ConcurrentNavigableMap<Integer, BookServerModel> bookMap;
+
+    // 著者名 => (id => 書籍)の索引。前方一致は著者名の範囲を辿り、著者毎のidの昇順の並びをマージして返すため
+    // 検索の手間は全件数ではなく該当する著者数と件数で決まる。著者がnullの書籍は前方一致しないため索引に入れない
+    private ConcurrentNavigableMap<String, ConcurrentNavigableMap<Integer, BookServerModel>> authorIndex;
 
     @PostConstruct
     public void init() {
-        bookMap = new ConcurrentHashMap<>();
-        bookMap.put(1, new BookServerModel(1, "燃えよ剣", "司馬遼太郎", "1972.06.01"));
-        bookMap.put(2, new BookServerModel(2, "峠", "司馬遼太郎", "1968.10.01"));
-        bookMap.put(3, new BookServerModel(3, "ノルウェイの森", "村上春樹", "1987.09.04"));
+        bookMap = new ConcurrentSkipListMap<>();
+        authorIndex = new ConcurrentSkipListMap<>();
+        put(new BookServerModel(1, "燃えよ剣", "司馬遼太郎", "1972.06.01"));
+        put(new BookServerModel(2, "峠", "司馬遼太郎", "1968.10.01"));
+        put(new BookServerModel(3, "ノルウェイの森", "村上春樹", "1987.09.04"));
     }
 
     @Override
@@ -35,37 +48,99 @@ public class InMemoryBookRepository implements BookRepository {
 
     @Override
     public List<BookServerModel> findAll() {
-        return bookMap.values().stream()
-                .sorted((book1, book2) -> Integer.compare(book1.getId(), book2.getId()))
+        return List.copyOf(bookMap.values());
+    }
+
+    @Override
+    public List<BookServerModel> findByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .distinct()
+                .map(bookMap::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
-    // @formatter:off
     @Override
     public List<BookServerModel> findByCondition(Map<String, String> condition) {
         return bookMap.values().stream()
-                .filter(book ->
-                    condition.entrySet().stream().allMatch(entry ->
-                        switch (entry.getKey()) {
-                            case "id" -> Objects.equals(entry.getValue(), String.valueOf(book.getId()));
-                            case "title" -> Objects.equals(entry.getValue(), book.getTitle());
-                            case "author" -> Objects.equals(entry.getValue(), book.getAuthor());
-                            default -> true;
-                }))
+                .filter(matches(condition))
                 .toList();
     }
-    // @formatter:on
 
     @Override
     public List<BookServerModel> findByAuthorStartingWith(String prefix) {
-        return bookMap.values().stream()
-                .filter(book -> book.getAuthor().startsWith(prefix))
-                .sorted((book1, book2) -> Integer.compare(book1.getId(), book2.getId()))
+        return findByAuthorStartingWith(prefix, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<BookServerModel> findAll(Integer afterId, int limit) {
+        return after(bookMap, afterId).values().stream()
+                .limit(limit)
                 .toList();
     }
 
     @Override
-    public BookServerModel save(BookServerModel book) throws DuplicateServerException, NotFoundServerException {
+    public List<BookServerModel> findByCondition(Map<String, String> condition, Integer afterId, int limit) {
+        return after(bookMap, afterId).values().stream()
+                .filter(matches(condition))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<BookServerModel> findByAuthorStartingWith(String prefix, Integer afterId, int limit) {
+
+        // 前方一致する著者は索引上で連続しているため、prefix以降を一致しなくなるまで辿る
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(head -> head.book().getId()));
+        for (Map.Entry<String, ConcurrentNavigableMap<Integer, BookServerModel>> entry : authorIndex
+                .tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            Head.of(after(entry.getValue(), afterId).values().iterator())
+                    .ifPresent(heads::add);
+        }
+
+        // 著者毎のidの昇順の並びをk-wayマージする
+        List<BookServerModel> result = new ArrayList<>();
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            result.add(head.book());
+            Head.of(head.rest()).ifPresent(heads::add);
+        }
+        return result;
+    }
+
+    private static ConcurrentNavigableMap<Integer, BookServerModel> after(
+            ConcurrentNavigableMap<Integer, BookServerModel> map, Integer afterId) {
+        return afterId != null ? map.tailMap(afterId, false) : map;
+    }
+
+    // マージ中の著者毎の並びの先頭と残り
+    private record Head(BookServerModel book, Iterator<BookServerModel> rest) {
+
+        static Optional<Head> of(Iterator<BookServerModel> books) {
+            return books.hasNext() ? Optional.of(new Head(books.next(), books)) : Optional.empty();
+        }
+    }
+
+    // @formatter:off
+    private static Predicate<BookServerModel> matches(Map<String, String> condition) {
+        return book ->
+            condition.entrySet().stream().allMatch(entry ->
+                switch (entry.getKey()) {
+                    case "id" -> Objects.equals(entry.getValue(), String.valueOf(book.getId()));
+                    case "title" -> Objects.equals(entry.getValue(), book.getTitle());
+                    case "author" -> Objects.equals(entry.getValue(), book.getAuthor());
+                    default -> true;
+        });
+    }
+    // @formatter:on
+
+    @Override
+    // 索引と一緒に更新するため更新系は直列化する(参照系はロックを取らない)
+    public synchronized BookServerModel save(BookServerModel book)
+            throws DuplicateServerException, NotFoundServerException {
 
         book = book.copy();
         if (book.getId() != null) { // for update
@@ -81,20 +156,46 @@ public class InMemoryBookRepository implements BookRepository {
             if (findByTitle(book.getTitle()).isPresent()) {
                 throw new DuplicateServerException("title:" + book.getTitle());
             }
-            int nextId = bookMap.keySet().stream().max(Integer::compareTo).get() + 1;
+            int nextId = bookMap.lastKey() + 1;
             book.setId(nextId);
         }
 
-        bookMap.put(book.getId(), book);
+        put(book);
         return book;
     }
 
     @Override
-    public void remove(int id) throws NotFoundServerException {
-        if (!bookMap.containsKey(id)) {
+    public synchronized void remove(int id) throws NotFoundServerException {
+        BookServerModel removed = bookMap.remove(id);
+        if (removed == null) {
             throw new NotFoundServerException("id:" + id);
         }
-        bookMap.remove(id);
+        unindex(removed);
+    }
+
+    // 更新は著者が変わる場合があるため、前の著者の索引から外してから登録する
+    private void put(BookServerModel book) {
+        BookServerModel previous = bookMap.put(book.getId(), book);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (book.getAuthor() != null) {
+            authorIndex.computeIfAbsent(book.getAuthor(), author -> new ConcurrentSkipListMap<>())
+                    .put(book.getId(), book);
+        }
+    }
+
+    private void unindex(BookServerModel book) {
+        if (book.getAuthor() == null) {
+            return;
+        }
+        ConcurrentNavigableMap<Integer, BookServerModel> books = authorIndex.get(book.getAuthor());
+        if (books != null) {
+            books.remove(book.getId());
+            if (books.isEmpty()) {
+                authorIndex.remove(book.getAuthor(), books);
+            }
+        }
     }
 
     private Optional<BookServerModel> findByTitle(String title) {
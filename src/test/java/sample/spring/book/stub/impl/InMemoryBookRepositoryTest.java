@@ -0,0 +1,71 @@
+package sample.spring.book.stub.impl;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import sample.spring.book.stub.BookServerModel;
+
+class InMemoryBookRepositoryTest {
+
+    private InMemoryBookRepository repository;
+
+    @BeforeEach
+    void beforeEach() {
+        repository = new InMemoryBookRepository();
+        repository.init();
+        // id:4～ 著者の異なる書籍を交互に登録し、著者毎の並びをまたいでidが前後するようにする
+        repository.save(new BookServerModel(null, "坂の上の雲", "司馬遼太郎", "1969.04.01"));
+        repository.save(new BookServerModel(null, "海辺のカフカ", "村上春樹", "2002.09.10"));
+        repository.save(new BookServerModel(null, "竜馬がゆく", "司馬遼", "1963.07.01"));
+        repository.save(new BookServerModel(null, "著者不明", null, "2000.01.01"));
+    }
+
+    @Test
+    void testFindByAuthorStartingWith() {
+
+        // 複数の著者にまたがってもidの昇順で返ること
+        assertThat(ids(repository.findByAuthorStartingWith("司馬"))).containsExactly(1, 2, 4, 6);
+        assertThat(ids(repository.findByAuthorStartingWith("司馬遼太郎"))).containsExactly(1, 2, 4);
+        assertThat(ids(repository.findByAuthorStartingWith("村上"))).containsExactly(3, 5);
+        // 著者がnullの書籍は空文字の前方一致にも含めない
+        assertThat(ids(repository.findByAuthorStartingWith(""))).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(repository.findByAuthorStartingWith("unknown")).isEmpty();
+    }
+
+    @Test
+    void testFindByAuthorStartingWithPage() {
+
+        assertThat(ids(repository.findByAuthorStartingWith("司馬", null, 3))).containsExactly(1, 2, 4);
+        assertThat(ids(repository.findByAuthorStartingWith("司馬", 2, 3))).containsExactly(4, 6);
+        assertThat(ids(repository.findByAuthorStartingWith("司馬", 6, 3))).isEmpty();
+    }
+
+    @Test
+    void testIndexFollowsSaveAndRemove() {
+
+        // 著者を変更した場合は前の著者では見つからないこと
+        repository.save(new BookServerModel(2, "峠", "村上春樹", "1968.10.01"));
+        assertThat(ids(repository.findByAuthorStartingWith("司馬"))).containsExactly(1, 4, 6);
+        assertThat(ids(repository.findByAuthorStartingWith("村上"))).containsExactly(2, 3, 5);
+
+        // 著者をnullにした場合
+        repository.save(new BookServerModel(6, "竜馬がゆく", null, "1963.07.01"));
+        assertThat(ids(repository.findByAuthorStartingWith("司馬"))).containsExactly(1, 4);
+
+        repository.remove(1);
+        repository.remove(4);
+        assertThat(repository.findByAuthorStartingWith("司馬")).isEmpty();
+
+        // 一度空になった著者にも再び登録できること
+        BookServerModel added = repository.save(new BookServerModel(null, "関ヶ原", "司馬遼太郎", "1966.01.01"));
+        assertThat(ids(repository.findByAuthorStartingWith("司馬"))).containsExactly(added.getId());
+    }
+
+    private static List<Integer> ids(List<BookServerModel> books) {
+        return books.stream().map(BookServerModel::getId).toList();
+    }
+}